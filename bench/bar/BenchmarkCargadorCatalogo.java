@@ -0,0 +1,125 @@
+package bar;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara {@link CargadorCatalogo} con la carga fila por fila que se usaba antes
+ * (BufferedReader + split), sobre un CSV generado.
+ * <p>
+ * Uso: {@code java -cp <clases> bar.BenchmarkCargadorCatalogo [filas] [repeticiones]}. Por
+ * defecto 200000 filas y 10 repeticiones medidas, despues de 5 de calentamiento.
+ */
+public class BenchmarkCargadorCatalogo {
+    private static final int CALENTAMIENTO = 5;
+
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path csv = Files.createTempFile("productos-bench", ".csv");
+        try {
+            generar(csv, filas);
+            System.out.println("CSV de " + filas + " filas, " + Files.size(csv) / 1024 + " KB");
+
+            List<Articulo> viejo = cargarFilaPorFila(csv.toString());
+            List<Articulo> nuevo = cargarEnParalelo(csv.toString());
+            comparar(viejo, nuevo);
+
+            for (int i = 0; i < CALENTAMIENTO; i++) {
+                cargarFilaPorFila(csv.toString());
+                cargarEnParalelo(csv.toString());
+            }
+            long[] tiemposViejo = new long[repeticiones];
+            long[] tiemposNuevo = new long[repeticiones];
+            for (int i = 0; i < repeticiones; i++) {
+                // Alternados, asi el ruido de la maquina afecta a los dos por igual
+                long inicio = System.nanoTime();
+                cargarFilaPorFila(csv.toString());
+                tiemposViejo[i] = System.nanoTime() - inicio;
+                inicio = System.nanoTime();
+                cargarEnParalelo(csv.toString());
+                tiemposNuevo[i] = System.nanoTime() - inicio;
+            }
+            informar("fila por fila", tiemposViejo);
+            informar("en paralelo ", tiemposNuevo);
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    /**
+     * Escribe un CSV con el encabezado de productos.csv. Un tercio de las filas tiene
+     * especificaciones y algunos precios tienen formatos menos comunes.
+     */
+    private static void generar(Path csv, int filas) throws IOException {
+        Random random = new Random(42);
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(csv))) {
+            pw.println(PersistidorCatalogo.ENCABEZADO_PRODUCTOS);
+            for (int i = 0; i < filas; i++) {
+                String especificaciones = "";
+                if (i % 3 == 0) {
+                    especificaciones = "Extra Queso:SI_NO:50.00;Extra Tomate:SI_NO:30.00;Aderezo " + (i % 7) + ":CANTIDAD:" + (i % 20) + ".5";
+                }
+                String precio = random.nextInt(100) == 0 ? " 1e3 " : (random.nextInt(100000) / 100.0) + "";
+                pw.println("P" + i + ",Producto de prueba " + i + "," + precio + "," + (i % 1000) + ".25,"
+                        + (i % 500) + ",images/p" + (i % 50) + ".png," + especificaciones);
+            }
+        }
+    }
+
+    /**
+     * La carga de antes: una fila por vez, con split y trim.
+     */
+    private static List<Articulo> cargarFilaPorFila(String filename) throws IOException {
+        List<Articulo> articulos = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String line;
+            br.readLine(); // Saltar encabezado
+            while ((line = br.readLine()) != null) {
+                String[] data = line.split(",", -1);
+                if (data.length >= 7) {
+                    articulos.add(new Articulo(data[0].trim(), data[1].trim(), Dinero.parsear(data[2]),
+                            Dinero.parsear(data[3]), Dinero.parsear(data[4]), data[5].trim(), data[6].trim()));
+                }
+            }
+        }
+        return articulos;
+    }
+
+    private static List<Articulo> cargarEnParalelo(String filename) throws IOException {
+        List<Articulo> articulos = new ArrayList<>();
+        CargadorCatalogo.cargar(filename, articulos::add);
+        return articulos;
+    }
+
+    private static void comparar(List<Articulo> esperados, List<Articulo> obtenidos) {
+        if (esperados.size() != obtenidos.size()) {
+            throw new IllegalStateException("Cantidad distinta: " + esperados.size() + " y " + obtenidos.size());
+        }
+        for (int i = 0; i < esperados.size(); i++) {
+            Articulo a = esperados.get(i);
+            Articulo b = obtenidos.get(i);
+            if (!a.codigo.equals(b.codigo) || !a.descripcion.equals(b.descripcion) || !a.imagenPath.equals(b.imagenPath)
+                    || a.precioDiurno != b.precioDiurno || a.precioNocturno != b.precioNocturno
+                    || a.precioHappyHour != b.precioHappyHour || !a.especificaciones.equals(b.especificaciones)) {
+                throw new IllegalStateException("Articulo distinto en la fila " + (i + 1) + ": " + a.codigo);
+            }
+        }
+    }
+
+    private static void informar(String nombre, long[] tiempos) {
+        long[] ordenados = tiempos.clone();
+        Arrays.sort(ordenados);
+        System.out.printf("%s  minimo %7.1f ms  mediana %7.1f ms%n", nombre,
+                ordenados[0] / 1e6, ordenados[ordenados.length / 2] / 1e6);
+    }
+}
@@ -0,0 +1,128 @@
+package bar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara {@link RenderizadorTicket} con el armado del texto con {@code String.format} que se
+ * usaba antes, sobre los tickets de un cierre de noche.
+ * <p>
+ * Uso: {@code java -cp <clases> bar.BenchmarkRenderizadorTicket [tickets] [repeticiones]}. Por
+ * defecto 2000 tickets de 12 lineas y 10 repeticiones medidas, despues de 5 de calentamiento.
+ */
+public class BenchmarkRenderizadorTicket {
+    private static final int CALENTAMIENTO = 5;
+    private static final int LINEAS_POR_TICKET = 12;
+
+    public static void main(String[] args) throws IOException {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<Ticket> tickets = generar(cantidad);
+        RenderizadorTicket renderizador = new RenderizadorTicket();
+        for (Ticket ticket : tickets) {
+            if (!conFormat(ticket).equals(renderizador.texto(ticket))) {
+                throw new IllegalStateException("Texto distinto para el ticket de la mesa " + ticket.getMesa());
+            }
+        }
+
+        StringBuilder texto = new StringBuilder(4096);
+        ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+        long[] tiemposFormat = new long[repeticiones];
+        long[] tiemposTexto = new long[repeticiones];
+        long[] tiemposAppendable = new long[repeticiones];
+        long[] tiemposBytes = new long[repeticiones];
+        long control = 0; // Para que el JIT no descarte el trabajo
+        for (int i = -CALENTAMIENTO; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            for (Ticket ticket : tickets) {
+                control += conFormat(ticket).length();
+            }
+            long format = System.nanoTime();
+            for (Ticket ticket : tickets) {
+                control += renderizador.texto(ticket).length();
+            }
+            long textoNuevo = System.nanoTime();
+            for (Ticket ticket : tickets) {
+                texto.setLength(0);
+                renderizador.escribir(ticket, texto);
+                control += texto.length();
+            }
+            long appendable = System.nanoTime();
+            for (Ticket ticket : tickets) {
+                bytes.clear();
+                renderizador.escribir(ticket, bytes);
+                control += bytes.position();
+            }
+            long fin = System.nanoTime();
+            if (i >= 0) {
+                tiemposFormat[i] = format - inicio;
+                tiemposTexto[i] = textoNuevo - format;
+                tiemposAppendable[i] = appendable - textoNuevo;
+                tiemposBytes[i] = fin - appendable;
+            }
+        }
+
+        System.out.println(cantidad + " tickets de " + LINEAS_POR_TICKET + " lineas (" + control + ")");
+        informar("String.format          ", tiemposFormat);
+        informar("texto(Ticket)          ", tiemposTexto);
+        informar("escribir(StringBuilder)", tiemposAppendable);
+        informar("escribir(ByteBuffer)   ", tiemposBytes);
+    }
+
+    /**
+     * El texto del ticket como se armaba antes del renderizador.
+     */
+    private static String conFormat(Ticket t) {
+        StringBuilder ticket = new StringBuilder();
+        ticket.append("Ticket - Mesa ").append(t.getMesa()).append("\n");
+        ticket.append("----------------------------------------\n");
+        ticket.append(String.format("%-20s %5s %10s\n", "Producto", "Cant.", "Subtotal"));
+        ticket.append("----------------------------------------\n");
+        for (Ticket.Linea linea : t.getLineas()) {
+            String descripcionCompleta = linea.getDescripcion();
+            if (!linea.getDetalle().isEmpty()) {
+                descripcionCompleta += " " + linea.getDetalle();
+            }
+            ticket.append(String.format("%-20.20s %5d %10s\n",
+                    descripcionCompleta, linea.getCantidad(), Dinero.textoLocal(linea.getSubtotal())));
+        }
+        ticket.append("----------------------------------------\n");
+        ticket.append(String.format("TOTAL: %26s\n", Dinero.textoLocal(t.getTotal())));
+        ticket.append("----------------------------------------\n");
+        return ticket.toString();
+    }
+
+    private static List<Ticket> generar(int cantidad) {
+        String[] descripciones = {"Cerveza Rubia", "Hamburguesa Clasica", "Papas Fritas con Cheddar", "Agua", "Ñoquis"};
+        String[] detalles = {"", "", "(Extra Queso)", "(Extra Queso, Cantidad de Aderezo: 2)"};
+        Random random = new Random(42);
+        List<Ticket> tickets = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            List<Ticket.Linea> lineas = new ArrayList<>(LINEAS_POR_TICKET);
+            long total = 0;
+            for (int j = 0; j < LINEAS_POR_TICKET; j++) {
+                int unidades = 1 + random.nextInt(6);
+                long precio = 100 * (5 + random.nextInt(500));
+                lineas.add(new Ticket.Linea("P" + j, descripciones[random.nextInt(descripciones.length)],
+                        detalles[random.nextInt(detalles.length)], unidades, precio, precio, precio * unidades));
+                total += precio * unidades;
+            }
+            tickets.add(new Ticket(i + 1, 1 + i % 20, LocalDate.now(), LocalTime.of(20, 0), LocalTime.of(23, 30), lineas, total));
+        }
+        return tickets;
+    }
+
+    private static void informar(String nombre, long[] tiempos) {
+        long[] ordenados = tiempos.clone();
+        Arrays.sort(ordenados);
+        System.out.printf("%s  minimo %7.1f ms  mediana %7.1f ms%n", nombre,
+                ordenados[0] / 1e6, ordenados[ordenados.length / 2] / 1e6);
+    }
+}
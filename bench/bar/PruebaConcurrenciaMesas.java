@@ -0,0 +1,177 @@
+package bar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de BarManager con varios mozos a la vez sobre las mismas mesas.
+ * <p>
+ * Cada mozo abre mesas al azar, les agrega consumos con y sin opciones, quita consumos y las
+ * cierra. Cada uno suma lo que agrego y resta lo que quito con exito. Al final se cierran todas
+ * las mesas y se comprueba que:
+ * <ul>
+ *     <li>el total de cada mesa abierta es la suma de sus consumos;</li>
+ *     <li>el total de cada ticket es la suma de sus lineas;</li>
+ *     <li>la suma de todos los tickets es exactamente lo agregado menos lo quitado.</li>
+ * </ul>
+ * Escribe el registro de mesas y el archivo de tickets en el directorio actual, asi que conviene
+ * ejecutarla en un directorio de prueba con una copia de productos.csv.
+ * <p>
+ * Uso: {@code java -cp <clases> bar.PruebaConcurrenciaMesas [mozos] [mesas] [operaciones por mozo]}.
+ */
+public class PruebaConcurrenciaMesas {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int mozos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int cantidadMesas = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int operaciones = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        BarManager bar = new BarManager(cantidadMesas);
+        List<Articulo> articulos = new ArrayList<>(bar.getTodosLosArticulos().values());
+        if (articulos.isEmpty()) {
+            System.err.println("No hay articulos en productos.csv");
+            System.exit(2);
+        }
+        for (int n = 1; n <= cantidadMesas; n++) {
+            bar.cerrarMesa(n); // Las que hayan quedado abiertas de otra corrida
+        }
+        long primerTicket = ultimoTicket(bar);
+
+        AtomicLong agregado = new AtomicLong();
+        AtomicLong quitado = new AtomicLong();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> hilos = new ArrayList<>();
+        for (int m = 0; m < mozos; m++) {
+            Thread hilo = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operaciones; i++) {
+                    int numero = 1 + random.nextInt(cantidadMesas);
+                    int accion = random.nextInt(100);
+                    if (accion < 10) {
+                        bar.abrirMesa(numero, LocalTime.now());
+                    } else if (accion < 70) {
+                        Articulo articulo = articulos.get(random.nextInt(articulos.size()));
+                        int cantidad = 1 + random.nextInt(5);
+                        long precio = articulo.getPrecioDiurno();
+                        int[] opciones = opcionesAlAzar(articulo, random);
+                        if (bar.agregarConsumoAMesa(numero, articulo, cantidad, precio, opciones)) {
+                            agregado.addAndGet(subtotal(articulo, cantidad, precio, opciones));
+                        }
+                    } else if (accion < 90) {
+                        List<Consumo> consumos = bar.getMesa(numero).getConsumos();
+                        if (!consumos.isEmpty()) {
+                            Consumo consumo = consumos.get(random.nextInt(consumos.size()));
+                            // Si otro mozo lo quito o cerro la mesa antes, no se cuenta
+                            if (bar.removerConsumoDeMesa(numero, consumo.getId())) {
+                                quitado.addAndGet(consumo.getSubtotal());
+                            }
+                        }
+                    } else {
+                        try {
+                            bar.cerrarMesa(numero);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            }, "mozo-" + m);
+            hilos.add(hilo);
+            hilo.start();
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        long duracion = System.nanoTime() - inicio;
+
+        boolean ok = true;
+        for (Mesa mesa : bar.getTodasLasMesas()) {
+            long suma = 0;
+            for (Consumo consumo : mesa.getConsumos()) {
+                suma += consumo.getSubtotal();
+            }
+            if (suma != mesa.getTotal()) {
+                System.err.println("Mesa " + mesa.getNumero() + ": total " + mesa.getTotal() + ", suma de consumos " + suma);
+                ok = false;
+            }
+        }
+        for (int n = 1; n <= cantidadMesas; n++) {
+            bar.cerrarMesa(n);
+        }
+        bar.flush();
+
+        long facturado = 0;
+        int cantidadTickets = 0;
+        for (Ticket ticket : bar.getArchivoTickets().getTickets(LocalDate.now())) {
+            if (ticket.getNumero() <= primerTicket) {
+                continue;
+            }
+            long suma = 0;
+            for (Ticket.Linea linea : ticket.getLineas()) {
+                suma += linea.getSubtotal();
+            }
+            if (suma != ticket.getTotal()) {
+                System.err.println("Ticket " + ticket.getNumero() + ": total " + ticket.getTotal() + ", suma de lineas " + suma);
+                ok = false;
+            }
+            facturado += ticket.getTotal();
+            cantidadTickets++;
+        }
+        long esperado = agregado.get() - quitado.get();
+        if (facturado != esperado) {
+            System.err.println("Facturado " + Dinero.texto(facturado) + ", esperado " + Dinero.texto(esperado));
+            ok = false;
+        }
+
+        System.out.printf("%d mozos, %d mesas, %d operaciones en %.0f ms; %d tickets por %s%n", mozos, cantidadMesas,
+                (long) mozos * operaciones, duracion / 1e6, cantidadTickets, Dinero.texto(facturado));
+        System.out.println(ok ? "Totales consistentes" : "TOTALES INCONSISTENTES");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static long ultimoTicket(BarManager bar) {
+        long ultimo = 0;
+        for (Ticket ticket : bar.getArchivoTickets().getTickets(LocalDate.now())) {
+            ultimo = Math.max(ultimo, ticket.getNumero());
+        }
+        return ultimo;
+    }
+
+    private static int[] opcionesAlAzar(Articulo articulo, ThreadLocalRandom random) {
+        List<Especificacion> especificaciones = articulo.getEspecificaciones();
+        if (especificaciones.isEmpty() || random.nextBoolean()) {
+            return null;
+        }
+        int[] opciones = new int[especificaciones.size()];
+        for (int i = 0; i < opciones.length; i++) {
+            opciones[i] = especificaciones.get(i).getTipo() == TipoEspecificacion.SI_NO ? random.nextInt(2) : random.nextInt(4);
+        }
+        return opciones;
+    }
+
+    /**
+     * Subtotal que deberia tener el consumo, calculado aparte de Consumo.
+     */
+    private static long subtotal(Articulo articulo, int cantidad, long precio, int[] opciones) {
+        long unitario = precio;
+        if (opciones != null) {
+            for (int i = 0; i < opciones.length; i++) {
+                unitario += articulo.getEspecificaciones().get(i).getPrecioPorUnidad() * opciones[i];
+            }
+        }
+        return unitario * cantidad;
+    }
+}
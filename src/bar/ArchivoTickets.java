@@ -0,0 +1,314 @@
+package bar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Archivo de solo-agregado con los tickets de las mesas cerradas.
+ * <p>
+ * Cada dia tiene dos archivos: {@code tickets-AAAA-MM-DD.dat} con los tickets uno detras de otro,
+ * y {@code tickets-AAAA-MM-DD.idx} con una entrada de {@value #LARGO_ENTRADA} bytes por ticket:
+ * {@code numero:long horaCierre:long posicion:long largo:int}. Los numeros de ticket crecen de un
+ * ticket al siguiente, asi que para buscar un ticket por numero se hace una busqueda binaria en
+ * el indice; para buscar por horario se recorre el indice, sin leer los tickets que no entran.
+ * Los archivos de un dia se leen mapeados en memoria.
+ * <p>
+ * Formato de cada ticket:
+ * <pre>
+ * numero:long mesa:int fecha:long horaApertura:long horaCierre:long total:long
+ * lineas:int { codigo:UTF descripcion:UTF detalle:UTF cantidad:int
+ *              precioUnitarioBase:long precioUnitarioFinal:long subtotal:long }
+ * secuencia:long
+ * </pre>
+ * La fecha va en dias desde 1970, las horas en nanosegundos desde la medianoche y los precios en
+ * centavos. La secuencia es la de la ultima operacion de la mesa en {@link RegistroMesas} antes
+ * del cierre; con ella, al recuperar las mesas, se reconoce una mesa cuyo ticket se guardo pero
+ * cuyo cierre no llego al registro.
+ */
+public class ArchivoTickets {
+    static final int LARGO_ENTRADA = 28;
+
+    private static final String PREFIJO = "tickets-";
+
+    private final Path directorio;
+    private long ultimoNumero; // Protegido por this
+
+    /**
+     * @param directorio Directorio de los tickets; se crea si no existe.
+     */
+    public ArchivoTickets(String directorio) {
+        this.directorio = Paths.get(directorio);
+        try {
+            Files.createDirectories(this.directorio);
+            TreeMap<LocalDate, Path> indices = indices();
+            if (!indices.isEmpty()) {
+                ByteBuffer indice = mapear(indices.lastEntry().getValue());
+                int entradas = indice.capacity() / LARGO_ENTRADA;
+                if (entradas > 0) {
+                    ultimoNumero = indice.getLong((entradas - 1) * LARGO_ENTRADA);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al abrir el archivo de tickets: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Guarda un ticket al final del archivo de su dia, con el numero siguiente. Cuando devuelve,
+     * el ticket ya esta en disco.
+     * @param ticket Ticket sin numero.
+     * @param secuencia Secuencia de la ultima operacion registrada de la mesa.
+     * @return El ticket con su numero.
+     * @throws IOException Si no se pudo guardar.
+     */
+    public synchronized Ticket guardar(Ticket ticket, long secuencia) throws IOException {
+        Ticket numerado = ticket.conNumero(ultimoNumero + 1);
+        byte[] datos = codificar(numerado, secuencia);
+        try (FileChannel dat = abrirParaAgregar(datos(numerado.fecha));
+             FileChannel idx = abrirParaAgregar(indice(numerado.fecha))) {
+            long posicion = dat.size();
+            escribir(dat, ByteBuffer.wrap(datos));
+            dat.force(false); // El ticket tiene que estar en disco antes que su entrada en el indice
+
+            ByteBuffer entrada = ByteBuffer.allocate(LARGO_ENTRADA);
+            entrada.putLong(numerado.numero).putLong(numerado.horaCierre.toNanoOfDay()).putLong(posicion).putInt(datos.length);
+            entrada.flip();
+            // Si un corte dejo una entrada a medias, la nueva va en su lugar
+            idx.truncate(idx.size() - idx.size() % LARGO_ENTRADA);
+            escribir(idx, entrada);
+            idx.force(false);
+        }
+        ultimoNumero = numerado.numero;
+        return numerado;
+    }
+
+    /**
+     * Busca un ticket por su numero.
+     * @param numero
+     * @return El ticket, o null si no esta en el archivo.
+     */
+    public Ticket buscar(long numero) {
+        try {
+            // Los dias mas nuevos tienen los numeros mas altos
+            for (Path archivoIndice : indices().descendingMap().values()) {
+                ByteBuffer indice = mapear(archivoIndice);
+                int entradas = indice.capacity() / LARGO_ENTRADA;
+                if (entradas == 0 || indice.getLong(0) > numero) {
+                    continue;
+                }
+                int desde = 0;
+                int hasta = entradas - 1;
+                while (desde <= hasta) {
+                    int medio = (desde + hasta) >>> 1;
+                    long actual = indice.getLong(medio * LARGO_ENTRADA);
+                    if (actual < numero) {
+                        desde = medio + 1;
+                    } else if (actual > numero) {
+                        hasta = medio - 1;
+                    } else {
+                        return leer(mapear(datos(archivoIndice)), indice, medio);
+                    }
+                }
+                return null;
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de tickets: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve los tickets de un dia cerrados en un rango horario, en el orden en que se guardaron.
+     * @param fecha Dia.
+     * @param desde Hora de cierre minima, incluida.
+     * @param hasta Hora de cierre maxima, incluida.
+     * @return
+     */
+    public List<Ticket> buscar(LocalDate fecha, LocalTime desde, LocalTime hasta) {
+        List<Ticket> tickets = new ArrayList<>();
+        Path archivoIndice = indice(fecha);
+        if (!Files.exists(archivoIndice)) {
+            return tickets;
+        }
+        try {
+            ByteBuffer indice = mapear(archivoIndice);
+            ByteBuffer datos = null;
+            long minimo = desde.toNanoOfDay();
+            long maximo = hasta.toNanoOfDay();
+            int entradas = indice.capacity() / LARGO_ENTRADA;
+            for (int i = 0; i < entradas; i++) {
+                // La hora del sistema se puede cambiar a mano, asi que las horas no estan ordenadas
+                long cierre = indice.getLong(i * LARGO_ENTRADA + 8);
+                if (cierre >= minimo && cierre <= maximo) {
+                    if (datos == null) {
+                        datos = mapear(datos(archivoIndice));
+                    }
+                    tickets.add(leer(datos, indice, i));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de tickets: " + e.getMessage());
+        }
+        return tickets;
+    }
+
+    /**
+     * Devuelve todos los tickets de un dia.
+     * @param fecha
+     * @return
+     */
+    public List<Ticket> getTickets(LocalDate fecha) {
+        return buscar(fecha, LocalTime.MIN, LocalTime.MAX);
+    }
+
+    /**
+     * Devuelve las secuencias guardadas con los tickets de los dos dias mas recientes que tienen
+     * tickets. Ahi esta el ultimo ticket guardado antes de un corte, aunque se haya cortado cerca
+     * de la medianoche.
+     * @return
+     */
+    public Set<Long> getSecuenciasRecientes() {
+        Set<Long> secuencias = new HashSet<>();
+        try {
+            int dias = 0;
+            for (Path archivoIndice : indices().descendingMap().values()) {
+                if (dias++ == 2) {
+                    break;
+                }
+                ByteBuffer indice = mapear(archivoIndice);
+                ByteBuffer datos = mapear(datos(archivoIndice));
+                int entradas = indice.capacity() / LARGO_ENTRADA;
+                for (int i = 0; i < entradas; i++) {
+                    // La secuencia son los ultimos 8 bytes del ticket
+                    long fin = indice.getLong(i * LARGO_ENTRADA + 16) + indice.getInt(i * LARGO_ENTRADA + 24);
+                    secuencias.add(datos.getLong((int) fin - 8));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el archivo de tickets: " + e.getMessage());
+        }
+        return secuencias;
+    }
+
+    private Ticket leer(ByteBuffer datos, ByteBuffer indice, int entrada) throws IOException {
+        long posicion = indice.getLong(entrada * LARGO_ENTRADA + 16);
+        ByteBuffer in = datos.duplicate();
+        in.position((int) posicion);
+        long numero = in.getLong();
+        int mesa = in.getInt();
+        LocalDate fecha = LocalDate.ofEpochDay(in.getLong());
+        LocalTime horaApertura = LocalTime.ofNanoOfDay(in.getLong());
+        LocalTime horaCierre = LocalTime.ofNanoOfDay(in.getLong());
+        long total = in.getLong();
+        int cantidad = in.getInt();
+        List<Ticket.Linea> lineas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            lineas.add(new Ticket.Linea(leerTexto(in), leerTexto(in), leerTexto(in), in.getInt(), in.getLong(), in.getLong(), in.getLong()));
+        }
+        return new Ticket(numero, mesa, fecha, horaApertura, horaCierre, lineas, total);
+    }
+
+    /**
+     * Lee un texto escrito con writeUTF. Se decodifica con readUTF y no como UTF-8, porque el UTF
+     * modificado escribe distinto el caracter nulo y los que estan fuera del plano basico.
+     */
+    private static String leerTexto(ByteBuffer in) throws IOException {
+        byte[] bytes = new byte[2 + (in.getShort(in.position()) & 0xFFFF)]; // Con el largo
+        in.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    private static byte[] codificar(Ticket ticket, long secuencia) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + ticket.lineas.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(ticket.numero);
+            out.writeInt(ticket.mesa);
+            out.writeLong(ticket.fecha.toEpochDay());
+            out.writeLong(ticket.horaApertura.toNanoOfDay());
+            out.writeLong(ticket.horaCierre.toNanoOfDay());
+            out.writeLong(ticket.total);
+            out.writeInt(ticket.lineas.size());
+            for (Ticket.Linea linea : ticket.lineas) {
+                out.writeUTF(linea.codigo);
+                out.writeUTF(linea.descripcion);
+                out.writeUTF(linea.detalle);
+                out.writeInt(linea.cantidad);
+                out.writeLong(linea.precioUnitarioBase);
+                out.writeLong(linea.precioUnitarioFinal);
+                out.writeLong(linea.subtotal);
+            }
+            out.writeLong(secuencia);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No pasa escribiendo en memoria
+        }
+    }
+
+    private static void escribir(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private static FileChannel abrirParaAgregar(Path archivo) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        canal.position(canal.size());
+        return canal;
+    }
+
+    private static MappedByteBuffer mapear(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()); // El mapeo sigue valido al cerrar el canal
+        }
+    }
+
+    private Path datos(LocalDate fecha) {
+        return directorio.resolve(PREFIJO + fecha + ".dat");
+    }
+
+    private Path indice(LocalDate fecha) {
+        return directorio.resolve(PREFIJO + fecha + ".idx");
+    }
+
+    private static Path datos(Path indice) {
+        String nombre = indice.getFileName().toString();
+        return indice.resolveSibling(nombre.substring(0, nombre.length() - ".idx".length()) + ".dat");
+    }
+
+    /**
+     * Devuelve los indices de todos los dias, ordenados por fecha.
+     */
+    private TreeMap<LocalDate, Path> indices() throws IOException {
+        TreeMap<LocalDate, Path> indices = new TreeMap<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, PREFIJO + "*.idx")) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                try {
+                    indices.put(LocalDate.parse(nombre.substring(PREFIJO.length(), nombre.length() - ".idx".length())), archivo);
+                } catch (RuntimeException e) {
+                    // Otro archivo con el mismo prefijo
+                }
+            }
+        }
+        return indices;
+    }
+}
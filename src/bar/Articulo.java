@@ -16,14 +16,14 @@ public class Articulo {
     /** Descripcion del articulo */
     String descripcion;
 
-    /** Precio durante el horario diurno */
-    double precioDiurno;
+    /** Precio durante el horario diurno, en centavos */
+    long precioDiurno;
 
-    /** Precio durante el horario nocturno */
-    double precioNocturno;
+    /** Precio durante el horario nocturno, en centavos */
+    long precioNocturno;
 
-    /** Precio durante la Happy Hour */
-    double precioHappyHour;
+    /** Precio durante la Happy Hour, en centavos */
+    long precioHappyHour;
 
     /** Ruta de la imagen asociada al articulo */
     String imagenPath;
@@ -36,13 +36,13 @@ public class Articulo {
      *
      * @param codigo Codigo del articulo.
      * @param descripcion Descripcion del articulo.
-     * @param precioDiurno Precio durante el dia.
-     * @param precioNocturno Precio durante la noche.
-     * @param precioHappyHour Precio durante la Happy Hour.
+     * @param precioDiurno Precio durante el dia, en centavos.
+     * @param precioNocturno Precio durante la noche, en centavos.
+     * @param precioHappyHour Precio durante la Happy Hour, en centavos.
      * @param imagenPath Ruta de la imagen.
      * @param especificacionesStr Cadena con especificaciones separadas por ";" y ":".
      */
-    public Articulo(String codigo, String descripcion, double precioDiurno, double precioNocturno, double precioHappyHour, String imagenPath, String especificacionesStr) {
+    public Articulo(String codigo, String descripcion, long precioDiurno, long precioNocturno, long precioHappyHour, String imagenPath, String especificacionesStr) {
         this.codigo = codigo;
         this.descripcion = descripcion;
         this.precioDiurno = precioDiurno;
@@ -57,20 +57,25 @@ public class Articulo {
      *
      * @param codigo Codigo del articulo.
      * @param descripcion Descripcion del articulo.
-     * @param precioDiurno Precio durante el dia.
-     * @param precioNocturno Precio durante la noche.
-     * @param precioHappyHour Precio durante la Happy Hour.
+     * @param precioDiurno Precio durante el dia, en centavos.
+     * @param precioNocturno Precio durante la noche, en centavos.
+     * @param precioHappyHour Precio durante la Happy Hour, en centavos.
      * @param imagenPath Ruta de la imagen.
      * @param especificaciones Lista de especificaciones.
      */
-    public Articulo(String codigo, String descripcion, double precioDiurno, double precioNocturno, double precioHappyHour, String imagenPath, List<Especificacion> especificaciones) {
+    public Articulo(String codigo, String descripcion, long precioDiurno, long precioNocturno, long precioHappyHour, String imagenPath, List<Especificacion> especificaciones) {
         this.codigo = codigo;
         this.descripcion = descripcion;
         this.precioDiurno = precioDiurno;
         this.precioNocturno = precioNocturno;
         this.precioHappyHour = precioHappyHour;
         this.imagenPath = imagenPath;
-        this.especificaciones = especificaciones != null ? especificaciones : new ArrayList<>();
+        this.especificaciones = new ArrayList<>();
+        if (especificaciones != null) {
+            for (Especificacion spec : especificaciones) {
+                this.especificaciones.add(Especificacion.intern(spec)); // Compartir las instancias repetidas
+            }
+        }
     }
 
     /**
@@ -91,8 +96,8 @@ public class Articulo {
                 try {
                     String nombre = partes[0].trim();
                     TipoEspecificacion tipo = TipoEspecificacion.valueOf(partes[1].trim().toUpperCase());
-                    double precio = Double.parseDouble(partes[2].trim());
-                    this.especificaciones.add(new Especificacion(nombre, tipo, precio));
+                    long precio = Dinero.parsear(partes[2]);
+                    this.especificaciones.add(Especificacion.obtener(nombre, tipo, precio));
                 } catch (IllegalArgumentException e) {
                     System.err.println("Error al parsear especificación (tipo o número inválido): " + par);
                 }
@@ -125,23 +130,23 @@ public class Articulo {
     /**
      * Devuelve el precio del articulo durante el horario diurno.
      *
-     * @return Precio diurno.
+     * @return Precio diurno, en centavos.
      */
-    public double getPrecioDiurno() { return precioDiurno; }
+    public long getPrecioDiurno() { return precioDiurno; }
 
     /**
      * Devuelve el precio del articulo durante el horario nocturno.
      *
-     * @return Precio nocturno.
+     * @return Precio nocturno, en centavos.
      */
-    public double getPrecioNocturno() { return precioNocturno; }
+    public long getPrecioNocturno() { return precioNocturno; }
 
     /**
      * Devuelve el precio del articulo durante la Happy Hour.
      *
-     * @return Precio de Happy Hour.
+     * @return Precio de Happy Hour, en centavos.
      */
-    public double getPrecioHappyHour() { return precioHappyHour; }
+    public long getPrecioHappyHour() { return precioHappyHour; }
 
     /**
      * Devuelve la ruta de la imagen asociada al articulo.
@@ -151,16 +156,19 @@ public class Articulo {
     public String getImagenPath() { return imagenPath; }
 
     /**
-     * Retorna el precio del articulo segun la hora del día.
+     * Retorna el precio del articulo en una franja horaria.
      *
-     * @param hora Hora actual (formato 0-23).
-     * @return Precio correspondiente al horario.
+     * @param franja Franja que rige, ver {@link BarManager#getFranjaActual()}.
+     * @return Precio de esa franja, en centavos.
      */
-    public double getPrecioPorHora(int hora) {
-        if (hora >= 20 || hora < 6) {
-            return precioNocturno;
-        } else {
-            return precioDiurno;
+    public long getPrecio(FranjaHoraria franja) {
+        switch (franja) {
+            case NOCTURNO:
+                return precioNocturno;
+            case HAPPY_HOUR:
+                return precioHappyHour;
+            default:
+                return precioDiurno;
         }
     }
 }
\ No newline at end of file
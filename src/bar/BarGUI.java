@@ -2,17 +2,21 @@ package bar;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -29,10 +33,14 @@ public class  BarGUI extends JFrame {
 
     // Componentes visuales
     private JPanel mesaSelectionPanel;
+    private JButton[] mesaButtons; // mesaButtons[n - 1] es el boton de la mesa n
     private JLayeredPane productDisplayLayeredPane; // Para el efecto de transparencia
-    private JPanel productDisplayPanel;
+    private JList<Articulo> productList; // Solo dibuja las celdas que se ven
+    private final ModeloProductos productosModel = new ModeloProductos();
+    private final RenderizadorProducto productoRenderer = new RenderizadorProducto();
     private JPanel overlayPanel; // Panel para el efecto de transparencia
     private JTextArea statusArea;
+    private JTextField busquedaField;
     private JButton mainMesaActionButton, happyHourToggleBtn, addProductoBtn, setHoraBtn, eliminarProductoBtn, removerConsumoBtn, modificarProductoBtn; // AGREGADO: modificarProductoBtn
     private JLabel sistemaHoraLabel;
     private JLabel activeMesaLabel;
@@ -40,7 +48,7 @@ public class  BarGUI extends JFrame {
 
     // Modelos de datos de la GUI
     private Mesa mesaActiva = null;
-    private DefaultTableModel consumosTableModel;
+    private ConsumosTableModel consumosTableModel;
     private JTable consumosTable;
     private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
 
@@ -49,10 +57,19 @@ public class  BarGUI extends JFrame {
      */
     public BarGUI() {
         barManager = new BarManager();
+        barManager.setDespachador(SwingUtilities::invokeLater);
+        barManager.addListener(new BarListener() {
+            @Override public void articulosCambiados(Set<String> codigos) { actualizarProductoPanels(codigos); }
+            @Override public void franjaCambiada(FranjaHoraria franja) { updateAllProductPrices(); }
+            @Override public void mesaCambiada(Mesa mesa) { actualizarMesaButton(mesa); }
+        });
 
         setTitle("La Taberna - Sistema de Gestión de Bar");
         setSize(1280, 800);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override public void windowClosing(WindowEvent e) { barManager.flush(); } // Guardar cambios pendientes del catalogo
+        });
         setLayout(new BorderLayout(10, 10));
         setLocationRelativeTo(null);
 
@@ -65,10 +82,11 @@ public class  BarGUI extends JFrame {
         mainSplitPane.setBorder(null);
 
         // Panel Izquierdo: Selección de Mesas
-        mesaSelectionPanel = new JPanel();
-        mesaSelectionPanel.setLayout(new BoxLayout(mesaSelectionPanel, BoxLayout.Y_AXIS));
-        mesaSelectionPanel.setBorder(BorderFactory.createTitledBorder("Mesas"));
-        JScrollPane mesaScrollPane = new JScrollPane(mesaSelectionPanel);
+        mesaSelectionPanel = new JPanel(new GridLayout(0, 1, 0, 8));
+        JPanel mesasPanel = new JPanel(new BorderLayout()); // Los botones arriba, sin estirarse a lo alto
+        mesasPanel.setBorder(BorderFactory.createTitledBorder("Mesas"));
+        mesasPanel.add(mesaSelectionPanel, BorderLayout.NORTH);
+        JScrollPane mesaScrollPane = new JScrollPane(mesasPanel);
         mainSplitPane.setLeftComponent(mesaScrollPane);
 
         // Panel Central-Derecho: Contenido
@@ -100,7 +118,7 @@ public class  BarGUI extends JFrame {
 
         // Inicializaciones finales
         populateProductDisplayPanel();
-        updateMesaButtons();
+        crearMesaButtons();
         updateSistemaHoraDisplay();
         updateStatus("Sistema iniciado.");
         selectMesa(null); // Asegura que el panel de productos esté inicialmente deshabilitado
@@ -135,9 +153,8 @@ public class  BarGUI extends JFrame {
 
         new Timer(1000, e -> clockLabel.setText(LocalTime.now().format(timeFormatter))).start();
         sistemaTimer = new Timer(1000, e -> {
-            barManager.tick();
+            barManager.tick(); // Si cambia la franja de precios llega el aviso franjaCambiada
             updateSistemaHoraDisplay();
-            updateAllProductPrices();
         });
         sistemaTimer.start();
     }
@@ -148,8 +165,25 @@ public class  BarGUI extends JFrame {
      */
     private void setupTabbedPane(JTabbedPane tabbedPane) {
         // Pestaña 1: Registrar Consumo
-        productDisplayPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 15));
-        productDisplayPanel.setBackground(Color.WHITE); // Fondo blanco para los productos
+        productList = new JList<>(productosModel);
+        productList.setLayoutOrientation(JList.HORIZONTAL_WRAP); // Filas que se acomodan al ancho
+        productList.setVisibleRowCount(-1);
+        productList.setCellRenderer(productoRenderer);
+        // Con el tamaño fijo la lista no tiene que medir cada articulo
+        productList.setFixedCellWidth(productoRenderer.getAnchoCelda());
+        productList.setFixedCellHeight(productoRenderer.getAltoCelda());
+        productList.setSelectionModel(new DefaultListSelectionModel() {
+            @Override public void setSelectionInterval(int index0, int index1) { } // Los productos no se seleccionan
+        });
+        productList.setBackground(Color.WHITE); // Fondo blanco para los productos
+        productList.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                int index = productList.locationToIndex(e.getPoint());
+                if (index >= 0 && productList.getCellBounds(index, index).contains(e.getPoint())) {
+                    registrarConsumoVisual(productosModel.getElementAt(index));
+                }
+            }
+        });
 
         // Overlay panel para el efecto de transparencia
         overlayPanel = new JPanel();
@@ -161,7 +195,7 @@ public class  BarGUI extends JFrame {
         productDisplayLayeredPane.setPreferredSize(new Dimension(800, 400)); // Ajustar si es necesario
         productDisplayLayeredPane.setLayout(new OverlayLayout(productDisplayLayeredPane)); // Usa OverlayLayout
 
-        JScrollPane productScrollPane = new JScrollPane(productDisplayPanel);
+        JScrollPane productScrollPane = new JScrollPane(productList);
         productScrollPane.setBorder(BorderFactory.createTitledBorder("Seleccionar Producto"));
         productScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         productScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
@@ -169,16 +203,29 @@ public class  BarGUI extends JFrame {
         productDisplayLayeredPane.add(productScrollPane, JLayeredPane.DEFAULT_LAYER);
         productDisplayLayeredPane.add(overlayPanel, JLayeredPane.PALETTE_LAYER); // Overlay encima
 
-        tabbedPane.addTab("Registrar Consumo", productDisplayLayeredPane);
+        // Buscador: muestra solo los productos que coinciden mientras se escribe
+        busquedaField = new JTextField();
+        busquedaField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { filtrarProductos(); }
+            @Override public void removeUpdate(DocumentEvent e) { filtrarProductos(); }
+            @Override public void changedUpdate(DocumentEvent e) { filtrarProductos(); }
+        });
+        JPanel busquedaPanel = new JPanel(new BorderLayout(5, 5));
+        busquedaPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        busquedaPanel.add(new JLabel("Buscar:"), BorderLayout.WEST);
+        busquedaPanel.add(busquedaField, BorderLayout.CENTER);
+
+        JPanel registrarPanel = new JPanel(new BorderLayout());
+        registrarPanel.add(busquedaPanel, BorderLayout.NORTH);
+        registrarPanel.add(productDisplayLayeredPane, BorderLayout.CENTER);
+
+        tabbedPane.addTab("Registrar Consumo", registrarPanel);
 
         // Pestaña 2: Ver Consumos
         JPanel consumosPanel = new JPanel(new BorderLayout(5, 5));
         consumosPanel.setBorder(BorderFactory.createTitledBorder("Consumos Actuales"));
 
-        String[] columnNames = {"Producto", "Detalle", "Cantidad", "Hora", "Subtotal"};
-        consumosTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override public boolean isCellEditable(int row, int column) { return false; }
-        };
+        consumosTableModel = new ConsumosTableModel(); // Se actualiza solo con los avisos de la mesa
         consumosTable = new JTable(consumosTableModel);
         consumosTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         consumosPanel.add(new JScrollPane(consumosTable), BorderLayout.CENTER);
@@ -236,27 +283,31 @@ public class  BarGUI extends JFrame {
     }
 
     private void updateAllProductPrices() {
-        int currentHour = barManager.getSistemaHora();
-        boolean isHappyHour = barManager.isHappyHourActive();
-        for (Component comp : productDisplayPanel.getComponents()) {
-            if (comp instanceof ProductoPanel) {
-                ((ProductoPanel) comp).updatePrice(currentHour, isHappyHour);
-            }
-        }
+        productoRenderer.setFranja(barManager.getFranjaActual());
+        productList.repaint(); // Los precios se calculan al dibujar las celdas visibles
     }
 
     private void populateProductDisplayPanel() {
-        productDisplayPanel.removeAll();
-        for (Articulo art : barManager.getTodosLosArticulos().values()) {
-            ProductoPanel pPanel = new ProductoPanel(art);
-            pPanel.addMouseListener(new MouseAdapter() {
-                @Override public void mouseClicked(MouseEvent e) { registrarConsumoVisual(pPanel.getArticulo()); }
-            });
-            productDisplayPanel.add(pPanel);
-        }
+        productosModel.setArticulos(barManager.getTodosLosArticulos().values());
         updateAllProductPrices();
-        productDisplayPanel.revalidate();
-        productDisplayPanel.repaint();
+        filtrarProductos();
+    }
+
+    /**
+     * Muestra solo los productos que coinciden con el texto del buscador.
+     */
+    private void filtrarProductos() {
+        productosModel.filtrar(barManager.buscarArticulos(busquedaField.getText()));
+    }
+
+    /**
+     * Actualiza solo los articulos que cambiaron fuera del programa.
+     * @param codigos Codigos de los articulos nuevos, modificados o eliminados.
+     */
+    private void actualizarProductoPanels(Set<String> codigos) {
+        productosModel.actualizar(codigos, barManager::getArticulo);
+        filtrarProductos();
+        updateStatus("Catálogo actualizado desde productos.csv (" + codigos.size() + " productos).");
     }
 
     private void setSistemaHora() {
@@ -307,19 +358,8 @@ public class  BarGUI extends JFrame {
         // Actualizar el botón principal de acción de mesa
         updateMainMesaActionButton();
 
-        // Limpiar y poblar la tabla de consumos
-        consumosTableModel.setRowCount(0);
-        if (mesa != null && mesa.estaOcupada()) {
-            for (Consumo c : mesa.getConsumos()) {
-                consumosTableModel.addRow(new Object[]{
-                        c.getArticulo().getDescripcion(),
-                        c.getDetalle(),
-                        c.getCantidad(),
-                        c.getHoraConsumoFormateada(), // Usa el método formateado
-                        String.format("$%.2f", c.getSubtotal())
-                });
-            }
-        }
+        // La tabla sigue a la mesa con sus avisos; solo se copia la lista al cambiar de mesa
+        consumosTableModel.setMesa(mesa);
         if (mesa != null) {
             updateStatus("Mesa " + mesa.getNumero() + " seleccionada.");
         }
@@ -354,30 +394,39 @@ public class  BarGUI extends JFrame {
         }
     }
 
-    private void updateMesaButtons() {
-        mesaSelectionPanel.removeAll();
-        for (Mesa currentMesa : barManager.getTodasLasMesas()) {
+    /**
+     * Crea un boton por mesa. Se llama una sola vez; despues cada boton se actualiza con el aviso
+     * mesaCambiada de su mesa.
+     */
+    private void crearMesaButtons() {
+        List<Mesa> mesas = barManager.getTodasLasMesas();
+        mesaButtons = new JButton[mesas.size()];
+        for (Mesa currentMesa : mesas) {
             JButton mesaBtn = new JButton("Mesa " + currentMesa.getNumero());
-            mesaBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
-            mesaBtn.setMaximumSize(new Dimension(Integer.MAX_VALUE, 60));
             mesaBtn.setFont(new Font("SansSerif", Font.BOLD, 18));
             mesaBtn.setForeground(Color.WHITE);
             mesaBtn.setFocusPainted(false);
-
-            if (currentMesa.estaOcupada()) {
-                mesaBtn.setBackground(new Color(255, 140, 0));
-                mesaBtn.setText("Mesa " + currentMesa.getNumero() + " (Ocupada)");
-            } else {
-                mesaBtn.setBackground(new Color(100, 180, 100));
-                mesaBtn.setText("Mesa " + currentMesa.getNumero() + " (Libre)");
-            }
-
             mesaBtn.addActionListener(e -> selectMesa(currentMesa));
+            mesaButtons[currentMesa.getNumero() - 1] = mesaBtn;
             mesaSelectionPanel.add(mesaBtn);
-            mesaSelectionPanel.add(Box.createVerticalStrut(8));
+            actualizarMesaButton(currentMesa);
         }
         mesaSelectionPanel.revalidate();
-        mesaSelectionPanel.repaint();
+    }
+
+    /**
+     * Actualiza el texto y el color del boton de una mesa.
+     * @param mesa
+     */
+    private void actualizarMesaButton(Mesa mesa) {
+        JButton mesaBtn = mesaButtons[mesa.getNumero() - 1];
+        if (mesa.estaOcupada()) {
+            mesaBtn.setBackground(new Color(255, 140, 0));
+            mesaBtn.setText("Mesa " + mesa.getNumero() + " (Ocupada - " + Dinero.mostrar(mesa.getTotal()) + ")");
+        } else {
+            mesaBtn.setBackground(new Color(100, 180, 100));
+            mesaBtn.setText("Mesa " + mesa.getNumero() + " (Libre)");
+        }
     }
 
     private void registrarConsumoVisual(Articulo art) {
@@ -407,7 +456,7 @@ public class  BarGUI extends JFrame {
         } else {
             for (Especificacion spec : art.getEspecificaciones()) {
                 JPanel specPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-                specPanel.add(new JLabel(spec.getNombre() + " (+" + String.format("$%.2f", spec.getPrecioPorUnidad()) + "):"));
+                specPanel.add(new JLabel(spec.getNombre() + " (+" + Dinero.mostrar(spec.getPrecioPorUnidad()) + "):"));
 
                 if (spec.getTipo() == TipoEspecificacion.CANTIDAD) {
                     JSpinner specSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10, 1));
@@ -438,8 +487,8 @@ public class  BarGUI extends JFrame {
         bottomPanel.add(buttonsPanel, BorderLayout.EAST);
 
         Runnable updatePriceAction = () -> {
-            double precioBase = barManager.isHappyHourActive() ? art.getPrecioHappyHour() : art.getPrecioPorHora(barManager.getSistemaHora());
-            double costoOpciones = 0;
+            long precioBase = barManager.getPrecioActual(art);
+            long costoOpciones = 0;
 
             for (int i = 0; i < art.getEspecificaciones().size(); i++) {
                 Especificacion spec = art.getEspecificaciones().get(i);
@@ -453,11 +502,11 @@ public class  BarGUI extends JFrame {
                 costoOpciones += spec.getPrecioPorUnidad() * value;
             }
 
-            double precioUnitarioFinal = precioBase + costoOpciones;
+            long precioUnitarioFinal = precioBase + costoOpciones;
             int cantidadTotal = (Integer) cantidadSpinner.getValue();
-            double precioTotal = precioUnitarioFinal * cantidadTotal;
+            long precioTotal = precioUnitarioFinal * cantidadTotal;
 
-            totalLabel.setText(String.format("Total: $%.2f", precioTotal));
+            totalLabel.setText("Total: " + Dinero.mostrar(precioTotal));
         };
 
         cantidadSpinner.addChangeListener(e -> updatePriceAction.run());
@@ -469,25 +518,27 @@ public class  BarGUI extends JFrame {
         updatePriceAction.run();
 
         okButton.addActionListener(e -> {
-            Map<Especificacion, Integer> opcionesSeleccionadas = new HashMap<>();
-            for (int i = 0; i < art.getEspecificaciones().size(); i++) {
-                Especificacion spec = art.getEspecificaciones().get(i);
+            // Cantidad de cada especificacion, en el mismo orden que en el articulo
+            int[] opciones = new int[art.getEspecificaciones().size()];
+            boolean conOpciones = false;
+            for (int i = 0; i < opciones.length; i++) {
                 JComponent control = specControls.get(i);
                 int value = 0;
                 if (control instanceof JSpinner) value = (Integer) ((JSpinner) control).getValue();
                 if (control instanceof JCheckBox) value = ((JCheckBox) control).isSelected() ? 1 : 0;
 
-                // Solo añadir opciones que tengan un valor (ej. spinner > 0 o checkbox seleccionado)
+                // Solo cuentan las opciones que tengan un valor (ej. spinner > 0 o checkbox seleccionado)
                 if (value > 0) {
-                    opcionesSeleccionadas.put(spec, value);
+                    opciones[i] = value;
+                    conOpciones = true;
                 }
             }
 
             int cantidad = (Integer) cantidadSpinner.getValue();
-            double precioBase = barManager.isHappyHourActive() ? art.getPrecioHappyHour() : art.getPrecioPorHora(barManager.getSistemaHora());
+            long precioBase = barManager.getPrecioActual(art);
 
-            barManager.agregarConsumoAMesa(mesaActiva.getNumero(), art, cantidad, precioBase, opcionesSeleccionadas); // Se pasa el objeto Articulo completo
-            updateStatus("Consumo registrado: " + cantidad + "x " + art.getDescripcion() + (opcionesSeleccionadas.isEmpty() ? "" : " con especificaciones."));
+            barManager.agregarConsumoAMesa(mesaActiva.getNumero(), art, cantidad, precioBase, opciones); // Se pasa el objeto Articulo completo
+            updateStatus("Consumo registrado: " + cantidad + "x " + art.getDescripcion() + (conOpciones ? " con especificaciones." : ""));
             selectMesa(mesaActiva);
             dialog.dispose();
         });
@@ -516,10 +567,12 @@ public class  BarGUI extends JFrame {
             return;
         }
 
+        // Se toma el id antes de preguntar: mientras tanto otra terminal puede cambiar la tabla
+        long consumoId = consumosTableModel.getConsumo(selectedRow).getId();
         int confirm = JOptionPane.showConfirmDialog(this, "¿Está seguro de que desea remover el consumo seleccionado?", "Confirmar", JOptionPane.YES_NO_OPTION);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            if (barManager.removerConsumoDeMesa(mesaActiva.getNumero(), selectedRow)) {
+            if (barManager.removerConsumoDeMesa(mesaActiva.getNumero(), consumoId)) {
                 updateStatus("Consumo removido de la mesa " + mesaActiva.getNumero());
                 selectMesa(mesaActiva);
             } else {
@@ -604,14 +657,14 @@ public class  BarGUI extends JFrame {
             JTextField codigoField = new JTextField(articuloExistente.getCodigo(), 10);
             codigoField.setEditable(false); // El código no se puede modificar
             JTextField descripcionField = new JTextField(articuloExistente.getDescripcion(), 20);
-            JTextField precioDiurnoField = new JTextField(String.valueOf(articuloExistente.getPrecioDiurno()), 5);
-            JTextField precioNocturnoField = new JTextField(String.valueOf(articuloExistente.getPrecioNocturno()), 5);
-            JTextField precioHappyHourField = new JTextField(String.valueOf(articuloExistente.getPrecioHappyHour()), 5);
+            JTextField precioDiurnoField = new JTextField(Dinero.texto(articuloExistente.getPrecioDiurno()), 5);
+            JTextField precioNocturnoField = new JTextField(Dinero.texto(articuloExistente.getPrecioNocturno()), 5);
+            JTextField precioHappyHourField = new JTextField(Dinero.texto(articuloExistente.getPrecioHappyHour()), 5);
             JTextField imagenPathField = new JTextField(articuloExistente.getImagenPath(), 20);
 
             // Convertir la lista de especificaciones a String para mostrar en el JTextArea
             String especificacionesStr = articuloExistente.getEspecificaciones().stream()
-                    .map(s -> s.getNombre() + ":" + s.getTipo().name() + ":" + String.format("%.0f", s.getPrecioPorUnidad()))
+                    .map(s -> s.getNombre() + ":" + s.getTipo().name() + ":" + Dinero.texto(s.getPrecioPorUnidad()))
                     .collect(Collectors.joining(";"));
             JTextArea especificacionesArea = new JTextArea(especificacionesStr, 3, 20);
             especificacionesArea.setLineWrap(true);
@@ -640,9 +693,9 @@ public class  BarGUI extends JFrame {
                 try {
                     String codigo = codigoField.getText().trim(); // No se modifica, pero se obtiene
                     String nuevaDescripcion = descripcionField.getText().trim();
-                    double nuevoPrecioDiurno = Double.parseDouble(precioDiurnoField.getText().trim());
-                    double nuevoPrecioNocturno = Double.parseDouble(precioNocturnoField.getText().trim());
-                    double nuevoPrecioHappyHour = Double.parseDouble(precioHappyHourField.getText().trim());
+                    long nuevoPrecioDiurno = Dinero.parsear(precioDiurnoField.getText());
+                    long nuevoPrecioNocturno = Dinero.parsear(precioNocturnoField.getText());
+                    long nuevoPrecioHappyHour = Dinero.parsear(precioHappyHourField.getText());
                     String nuevaImagenPath = imagenPathField.getText().trim();
                     String nuevasEspecificacionesStr = especificacionesArea.getText().trim();
 
@@ -682,7 +735,6 @@ public class  BarGUI extends JFrame {
             happyHourToggleBtn.setBackground(new Color(200, 150, 0));
             updateStatus("Happy Hour desactivado.");
         }
-        updateAllProductPrices();
     }
 
     /**
@@ -716,7 +768,13 @@ public class  BarGUI extends JFrame {
 
         int confirm = JOptionPane.showConfirmDialog(this, "¿Cerrar la Mesa " + mesaActiva.getNumero() + "?", "Confirmar Cierre", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            String ticket = barManager.cerrarMesa(mesaActiva.getNumero());
+            String ticket;
+            try {
+                ticket = barManager.cerrarMesa(mesaActiva.getNumero());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "No se pudo guardar el ticket, la Mesa " + mesaActiva.getNumero() + " sigue abierta.\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             JTextArea ticketArea = new JTextArea(ticket, 20, 35);
             ticketArea.setEditable(false);
             ticketArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
@@ -763,9 +821,9 @@ public class  BarGUI extends JFrame {
             try {
                 String codigo = codigoField.getText().trim();
                 String descripcion = descripcionField.getText().trim();
-                double precioDiurno = Double.parseDouble(precioDiurnoField.getText().trim());
-                double precioNocturno = Double.parseDouble(precioNocturnoField.getText().trim());
-                double precioHappyHour = Double.parseDouble(precioHappyHourField.getText().trim());
+                long precioDiurno = Dinero.parsear(precioDiurnoField.getText());
+                long precioNocturno = Dinero.parsear(precioNocturnoField.getText());
+                long precioHappyHour = Dinero.parsear(precioHappyHourField.getText());
                 String imagenPath = imagenPathField.getText().trim();
                 String especificacionesStr = especificacionesArea.getText().trim();
 
@@ -793,7 +851,6 @@ public class  BarGUI extends JFrame {
     private void updateStatus(String message) {
         statusArea.append("\n[" + LocalTime.now().format(timeFormatter) + "] " + message);
         statusArea.setCaretPosition(statusArea.getDocument().getLength());
-        updateMesaButtons(); // Siempre actualizar los botones de mesa al cambiar el estado
     }
 
     /**
@@ -0,0 +1,31 @@
+package bar;
+
+import java.util.Set;
+
+/**
+ * Avisos de BarManager para la interfaz. Todos los metodos tienen una implementacion vacia, asi
+ * cada oyente solo redefine los que le interesan.
+ */
+public interface BarListener {
+    /**
+     * Se cambiaron, agregaron o eliminaron articulos del catalogo desde afuera del programa.
+     * @param codigos Codigos de los articulos afectados; si alguno ya no existe, fue eliminado.
+     */
+    default void articulosCambiados(Set<String> codigos) {
+    }
+
+    /**
+     * Cambio la franja de precios, porque el reloj del sistema paso a otra franja de las tarifas
+     * o porque se activo o desactivo la Happy Hour.
+     * @param franja La franja que rige ahora.
+     */
+    default void franjaCambiada(FranjaHoraria franja) {
+    }
+
+    /**
+     * Cambio el estado de una mesa: se abrio, se cerro o se le agrego o quito un consumo.
+     * @param mesa La mesa que cambio.
+     */
+    default void mesaCambiada(Mesa mesa) {
+    }
+}
@@ -1,106 +1,513 @@
 package bar;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * 	Logica del sistema de gestion del bar.
  */
 public class BarManager {
-    private Map<String, Articulo> articulos;
-    private Map<Integer, Mesa> mesas;
-    private boolean isHappyHourActive = false;
-    private LocalTime sistemaTime;
+    private static final String ARCHIVO_PRODUCTOS = "productos.csv";
+    private static final String ARCHIVO_JOURNAL = "productos.journal";
+    private static final String ARCHIVO_SNAPSHOT = "productos.bin";
+    private static final String ARCHIVO_TARIFAS = "tarifas.csv";
+    private static final String ARCHIVO_MESAS = "mesas.wal";
+    private static final String ARCHIVO_SNAPSHOT_MESAS = "mesas.bin";
+    private static final String DIRECTORIO_TICKETS = "tickets";
+    /** Cada cuantos minutos se guarda la copia de las mesas, si no se indica otro valor con bar.copiaMesasMinutos. */
+    private static final long MINUTOS_COPIA_MESAS = 5;
+    /** Cantidad de mesas si no se indica otra con la propiedad del sistema bar.mesas. */
+    private static final int MESAS_POR_DEFECTO = 5;
 
+    // Las lecturas del catalogo no toman locks; las modificaciones se ordenan con catalogoLock
+    private final Map<String, Articulo> articulos;
+    private final Object catalogoLock = new Object();
+    // La mesa N esta en la posicion N - 1; las mesas no cambian despues de crearse
+    private final Mesa[] mesas;
+    private final List<Mesa> todasLasMesas;
+    // Bit N = mesa N ocupada, en palabras de 64 bits como las de BitSet. Se actualiza al abrir y
+    // cerrar, con el lock de la mesa; cada bit se cambia con compareAndSet sobre su palabra
+    private final AtomicLongArray mesasOcupadas;
+    // Codigo de articulo -> numero de mesa abierta -> cantidad de consumos de ese articulo en la mesa.
+    // Se lee sin locks; cada mesa cambia sus propias cantidades con su lock.
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, Integer>> lineasPorArticulo = new ConcurrentHashMap<>();
+    private volatile boolean isHappyHourActive = false;
+    private volatile LocalTime sistemaTime;
+    private volatile DayOfWeek sistemaDia;
+    private final TarifaHoraria tarifa;
+    private FranjaHoraria franjaAnunciada; // Ultima franja avisada a los oyentes, protegida por this
+    private final JournalCatalogo journal;
+    private final PersistidorCatalogo persistidor;
+    private final RegistroMesas registro = new RegistroMesas(ARCHIVO_MESAS);
+    private final ScheduledExecutorService copiador;
+    private final ArchivoTickets tickets = new ArchivoTickets(DIRECTORIO_TICKETS);
+    private long secuenciaCopiada = -1; // Solo la usa el hilo copiador
+    private final IndiceBusqueda indice = new IndiceBusqueda();
+    private final List<BarListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Executor despachador = Runnable::run;
+
+    /**
+     * Crea el bar con la cantidad de mesas de la propiedad del sistema bar.mesas, o
+     * {@value #MESAS_POR_DEFECTO} si no esta definida.
+     */
     public BarManager() {
-        this.articulos = new HashMap<>();
-        this.mesas = new HashMap<>();
+        this(Integer.getInteger("bar.mesas", MESAS_POR_DEFECTO));
+    }
+
+    /**
+     * @param cantidadMesas Cantidad de mesas, numeradas desde 1.
+     */
+    public BarManager(int cantidadMesas) {
+        if (cantidadMesas < 1) {
+            throw new IllegalArgumentException("La cantidad de mesas debe ser positiva: " + cantidadMesas);
+        }
+        // Concurrentes para poder atender varias terminales a la vez
+        this.articulos = new ConcurrentHashMap<>();
+        this.mesas = new Mesa[cantidadMesas];
+        this.todasLasMesas = Collections.unmodifiableList(Arrays.asList(mesas));
+        this.mesasOcupadas = new AtomicLongArray((cantidadMesas >> 6) + 1);
         this.sistemaTime = LocalTime.now().withNano(0);
-        cargarArticulos("productos.csv"); // Asegúrate de que este archivo exista y tenga el formato correcto
-        inicializarMesas(5); // Cantidad de mesas que deseamos crear
+        this.sistemaDia = LocalDate.now().getDayOfWeek();
+        this.tarifa = TarifaHoraria.cargar(ARCHIVO_TARIFAS);
+        this.franjaAnunciada = getFranjaActual();
+        this.journal = new JournalCatalogo(ARCHIVO_JOURNAL, ARCHIVO_PRODUCTOS);
+        this.persistidor = new PersistidorCatalogo(ARCHIVO_PRODUCTOS, ARCHIVO_SNAPSHOT, journal, () -> articulos.values());
+        cargarArticulos(ARCHIVO_PRODUCTOS); // Asegúrate de que este archivo exista y tenga el formato correcto
+        indice.agregarTodos(articulos.values());
+        VigilanteCatalogo vigilante = new VigilanteCatalogo(ARCHIVO_PRODUCTOS, this::recargarFilas);
+        persistidor.setVigilante(vigilante);
+        vigilante.iniciar();
+        inicializarMesas();
+        this.copiador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "copia-mesas");
+            t.setDaemon(true);
+            return t;
+        });
+        recuperarMesas();
     }
 
     // MODIFICADO: Cargar artículos ahora procesa la 8ª columna de especificaciones.
     private void cargarArticulos(String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            br.readLine(); // Saltar encabezado
-            while ((line = br.readLine()) != null) {
-                String[] data = line.split(",", -1); // -1 para incluir campos vacíos al final
-                if (data.length >= 7) { // Asegurarse de tener al menos los campos básicos
-                    String codigo = data[0].trim();
-                    String nombre = data[1].trim();
-                    double precioDiurno = Double.parseDouble(data[2].trim());
-                    double precioNocturno = Double.parseDouble(data[3].trim());
-                    double precioHappyHour = Double.parseDouble(data[4].trim());
-                    String imagenPath = data[5].trim();
-                    String especificacionesStr = data.length > 6 ? data[6].trim() : ""; // La 7ma columna (índice 6)
-
-                    Articulo articulo = new Articulo(codigo, nombre, precioDiurno, precioNocturno, precioHappyHour, imagenPath, especificacionesStr);
-                    articulos.put(codigo, articulo);
+        // Si la copia binaria corresponde al CSV actual, se evita parsear el CSV
+        Map<String, Articulo> copiaBinaria = SnapshotCatalogo.leer(ARCHIVO_SNAPSHOT, filename);
+        if (copiaBinaria != null) {
+            articulos.putAll(copiaBinaria);
+        } else {
+            try {
+                // Los bloques del archivo se procesan en paralelo, ver CargadorCatalogo
+                CargadorCatalogo.cargar(filename, articulo -> articulos.put(articulo.getCodigo(), articulo));
+
+                // Dejar lista la copia binaria para el proximo arranque
+                List<Articulo> base = new ArrayList<>(articulos.values());
+                persistidor.enSegundoPlano(() -> SnapshotCatalogo.escribir(ARCHIVO_SNAPSHOT, filename, base));
+            } catch (IOException e) {
+                System.err.println("Error al cargar artículos: " + e.getMessage());
+                // Manejo de error: podrías inicializar con artículos predeterminados o mostrar un mensaje al usuario.
+                // Por ahora, simplemente se informa el error.
+            } catch (NumberFormatException e) {
+                System.err.println("Error de formato numérico en el archivo de artículos: " + e.getMessage());
+            }
+        }
+
+        // Aplicar los cambios hechos desde la ultima vez que se reescribio el CSV
+        int descartados = journal.reproducir(
+                fila -> {
+                    Articulo articulo = parsearLinea(fila);
+                    if (articulo != null) {
+                        articulos.put(articulo.getCodigo(), articulo);
+                    }
+                },
+                articulos::remove);
+        if (descartados > 0) {
+            persistidor.compactarEnSegundoPlano(); // Que los registros viejos no queden en el journal
+        }
+    }
+
+    /**
+     * Convierte una fila de productos.csv en un Articulo.
+     * @param line Fila sin el salto de linea.
+     * @return El articulo, o null si la fila no tiene los campos basicos.
+     */
+    private Articulo parsearLinea(String line) {
+        String[] data = line.split(",", -1); // -1 para incluir campos vacíos al final
+        if (data.length >= 7) { // Asegurarse de tener al menos los campos básicos
+            String codigo = data[0].trim();
+            String nombre = data[1].trim();
+            long precioDiurno = Dinero.parsear(data[2]);
+            long precioNocturno = Dinero.parsear(data[3]);
+            long precioHappyHour = Dinero.parsear(data[4]);
+            String imagenPath = data[5].trim();
+            String especificacionesStr = data.length > 6 ? data[6].trim() : ""; // La 7ma columna (índice 6)
+
+            return new Articulo(codigo, nombre, precioDiurno, precioNocturno, precioHappyHour, imagenPath, especificacionesStr);
+        }
+        return null;
+    }
+
+    /**
+     * Aplica las filas de productos.csv que se editaron desde afuera del programa. Se llama desde
+     * el hilo del vigilante: aca solo se parsean las filas, y el reemplazo en el catalogo se hace
+     * de una sola vez en el despachador.
+     * @param filas Fila de cada articulo nuevo o modificado.
+     * @param eliminados Codigos que ya no estan en el archivo.
+     */
+    private void recargarFilas(Map<String, String> filas, Set<String> eliminados) {
+        Map<String, Articulo> cambiados = new HashMap<>();
+        for (String fila : filas.values()) {
+            try {
+                Articulo articulo = parsearLinea(fila);
+                if (articulo != null) {
+                    cambiados.put(articulo.getCodigo(), articulo);
                 }
+            } catch (NumberFormatException e) {
+                System.err.println("Fila del catálogo ignorada (formato numérico): " + fila);
             }
-        } catch (IOException e) {
-            System.err.println("Error al cargar artículos: " + e.getMessage());
-            // Manejo de error: podrías inicializar con artículos predeterminados o mostrar un mensaje al usuario.
-            // Por ahora, simplemente se informa el error.
-        } catch (NumberFormatException e) {
-            System.err.println("Error de formato numérico en el archivo de artículos: " + e.getMessage());
-        }
-    }
-
-    /**
-     * Guarda todos los productos en el archivo CSV.
-     * @param filename Nombre del archivo.
-     */
-    private void guardarProductos(String filename) {
-        // Configurar formato numérico con punto decimal
-        DecimalFormat df = new DecimalFormat("0.00", new DecimalFormatSymbols(Locale.US));
-        df.setGroupingUsed(false);
-
-        try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
-            pw.println("codigo,nombre,precio_diurno,precio_nocturno,precio_happy_hour,imagen,especificaciones");
-            for (Articulo art : articulos.values()) {
-                String especificacionesStr = art.getEspecificaciones().stream()
-                        .map(spec -> spec.getNombre() + ":" + spec.getTipo().name() + ":" + df.format(spec.getPrecioPorUnidad()))
-                        .collect(Collectors.joining(";"));
-
-                pw.println(String.format("%s,%s,%s,%s,%s,%s,%s",
-                        art.getCodigo(),
-                        art.getDescripcion(),
-                        df.format(art.getPrecioDiurno()),
-                        df.format(art.getPrecioNocturno()),
-                        df.format(art.getPrecioHappyHour()),
-                        art.getImagenPath(),
-                        especificacionesStr));
+        }
+        if (cambiados.isEmpty() && eliminados.isEmpty()) {
+            return;
+        }
+
+        despachador.execute(() -> {
+            synchronized (catalogoLock) {
+                // Los Consumo de las mesas abiertas conservan su propio Articulo, no se tocan.
+                for (Articulo articulo : cambiados.values()) {
+                    articulos.put(articulo.getCodigo(), articulo);
+                    indice.agregar(articulo);
+                }
+                for (String codigo : eliminados) {
+                    if (articulos.remove(codigo) != null) {
+                        indice.eliminar(codigo);
+                    }
+                }
             }
-        } catch (IOException e) {
-            System.err.println("Error al guardar productos: " + e.getMessage());
+            // El journal se escribio sobre el CSV anterior: se reescribe el CSV con todo junto
+            persistidor.compactarEnSegundoPlano();
+            Set<String> codigos = new HashSet<>(cambiados.keySet());
+            codigos.addAll(eliminados);
+            for (BarListener listener : listeners) {
+                listener.articulosCambiados(codigos);
+            }
+        });
+    }
+
+    /**
+     * Registra un oyente de los avisos de BarManager.
+     * @param listener
+     */
+    public void addListener(BarListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Define donde se ejecutan los cambios que llegan desde otros hilos y los avisos a los
+     * oyentes. La interfaz grafica usa {@code SwingUtilities::invokeLater}.
+     * @param despachador
+     */
+    public void setDespachador(Executor despachador) {
+        this.despachador = despachador;
+    }
+
+    private void inicializarMesas() {
+        for (int i = 1; i <= mesas.length; i++) {
+            mesas[i - 1] = new Mesa(i);
         }
     }
 
-    private void inicializarMesas(int cantidad) {
-        for (int i = 1; i <= cantidad; i++) {
-            mesas.put(i, new Mesa(i));
+    /**
+     * Vuelve a abrir las mesas que estaban abiertas cuando se cerro o se corto el programa, con
+     * sus consumos: primero se carga la ultima copia de las mesas y despues se reproducen las
+     * operaciones registradas despues de ella. Luego empieza a registrar las operaciones nuevas.
+     */
+    private void recuperarMesas() {
+        List<SnapshotMesas.Estado> estados = SnapshotMesas.leer(ARCHIVO_SNAPSHOT_MESAS);
+        if (estados != null) {
+            for (SnapshotMesas.Estado estado : estados) {
+                Mesa mesa = getMesa(estado.numero);
+                if (mesa == null) {
+                    continue; // Ahora hay menos mesas
+                }
+                mesa.ultimoSeq = estado.ultimoSeq;
+                if (estado.horaApertura != null) {
+                    abrir(mesa, estado.horaApertura);
+                    for (Consumo consumo : estado.consumos) {
+                        agregar(mesa, consumo);
+                    }
+                }
+            }
+        }
+        registro.reproducir(new RegistroMesas.Reproductor() {
+            @Override
+            public void abrir(long seq, int numeroMesa, LocalTime hora) {
+                Mesa mesa = pendiente(seq, numeroMesa);
+                if (mesa != null) {
+                    BarManager.this.abrir(mesa, hora);
+                }
+            }
+
+            @Override
+            public void agregar(long seq, int numeroMesa, Consumo consumo) {
+                Mesa mesa = pendiente(seq, numeroMesa);
+                if (mesa != null) {
+                    BarManager.this.agregar(mesa, consumo);
+                }
+            }
+
+            @Override
+            public void remover(long seq, int numeroMesa, long consumoId) {
+                Mesa mesa = pendiente(seq, numeroMesa);
+                if (mesa != null) {
+                    BarManager.this.remover(mesa, consumoId);
+                }
+            }
+
+            @Override
+            public void cerrar(long seq, int numeroMesa) {
+                Mesa mesa = pendiente(seq, numeroMesa);
+                if (mesa != null) {
+                    BarManager.this.cerrar(mesa);
+                }
+            }
+        });
+        long ultimaSecuencia = 0;
+        for (Mesa mesa : mesas) {
+            ultimaSecuencia = Math.max(ultimaSecuencia, mesa.ultimoSeq);
+        }
+        registro.iniciar(ultimaSecuencia);
+        cerrarArchivadas();
+        int recuperadas = getCantidadMesasOcupadas();
+        if (recuperadas > 0) {
+            System.err.println("Mesas abiertas recuperadas: " + recuperadas);
         }
+
+        // La primera copia enseguida, asi los segmentos reproducidos se pueden borrar
+        long minutos = Long.getLong("bar.copiaMesasMinutos", MINUTOS_COPIA_MESAS);
+        if (minutos <= 0) {
+            System.err.println("bar.copiaMesasMinutos debe ser positivo, se usa " + MINUTOS_COPIA_MESAS + ": " + minutos);
+            minutos = MINUTOS_COPIA_MESAS;
+        }
+        copiador.scheduleWithFixedDelay(this::guardarCopiaMesas, 0, minutos, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Cierra las mesas recuperadas cuyo ticket ya esta en el archivo de tickets: el programa se
+     * corto despues de guardar el ticket y antes de que el cierre llegara al registro.
+     */
+    private void cerrarArchivadas() {
+        if (getCantidadMesasOcupadas() == 0) {
+            return;
+        }
+        Set<Long> archivadas = tickets.getSecuenciasRecientes();
+        for (Mesa mesa : mesas) {
+            synchronized (mesa) {
+                if (mesa.estaOcupada() && mesa.ultimoSeq > 0 && archivadas.contains(mesa.ultimoSeq)) {
+                    cerrar(mesa);
+                    mesa.ultimoSeq = registro.registrarCierre(mesa.getNumero());
+                    System.err.println("Mesa " + mesa.getNumero() + " cerrada: su ticket ya estaba guardado");
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve la mesa de una operacion registrada, o null si la operacion ya estaba incluida en
+     * la copia de las mesas.
+     */
+    private Mesa pendiente(long seq, int numeroMesa) {
+        Mesa mesa = getMesa(numeroMesa);
+        if (mesa == null || seq <= mesa.ultimoSeq) {
+            return null;
+        }
+        mesa.ultimoSeq = seq;
+        return mesa;
     }
 
-    public void tick() {
+    /**
+     * Guarda una copia de todas las mesas y borra los segmentos del registro que ya incluye. Se
+     * ejecuta en el hilo copiador: cada mesa se bloquea solo lo que tarda en copiar su lista de
+     * consumos, y la escritura del archivo no bloquea a nadie.
+     */
+    private void guardarCopiaMesas() {
+        long secuencia = registro.getSecuencia();
+        if (secuencia == secuenciaCopiada) {
+            return; // Nada cambio desde la ultima copia
+        }
+        int segmento = registro.rotar();
+        if (segmento < 0) {
+            return;
+        }
+        List<SnapshotMesas.Estado> estados = new ArrayList<>(mesas.length);
+        for (Mesa mesa : mesas) {
+            synchronized (mesa) {
+                estados.add(new SnapshotMesas.Estado(mesa.getNumero(), mesa.ultimoSeq, mesa.getHoraApertura(), new ArrayList<>(mesa.consumos.values())));
+            }
+        }
+        if (SnapshotMesas.escribir(ARCHIVO_SNAPSHOT_MESAS, estados)) {
+            registro.borrarAnteriores(segmento);
+            secuenciaCopiada = secuencia;
+        }
+    }
+
+    /**
+     * Avisa a los oyentes que cambio el estado de una mesa. Se llama despues de soltar su lock.
+     */
+    private void avisarMesaCambiada(Mesa mesa) {
+        despachador.execute(() -> {
+            for (BarListener listener : listeners) {
+                listener.mesaCambiada(mesa);
+            }
+        });
+    }
+
+    /**
+     * Suma o resta consumos de un articulo en una mesa al indice de uso. Se llama con el lock de la mesa.
+     */
+    private void sumarLinea(String codigo, int numeroMesa, int cantidad) {
+        // compute bloquea solo la entrada del codigo, asi una mesa no borra el mapa vacio mientras
+        // otra le agrega su cantidad
+        lineasPorArticulo.compute(codigo, (c, porMesa) -> {
+            if (porMesa == null) {
+                porMesa = new ConcurrentHashMap<>();
+            }
+            if (porMesa.merge(numeroMesa, cantidad, Integer::sum) <= 0) {
+                porMesa.remove(numeroMesa);
+            }
+            return porMesa.isEmpty() ? null : porMesa;
+        });
+    }
+
+    /**
+     * Quita una mesa que se cierra del indice de uso de los articulos que consumio.
+     */
+    private void quitarMesaDeLineas(Set<String> codigos, int numeroMesa) {
+        for (String codigo : codigos) {
+            lineasPorArticulo.computeIfPresent(codigo, (c, porMesa) -> {
+                porMesa.remove(numeroMesa);
+                return porMesa.isEmpty() ? null : porMesa;
+            });
+        }
+    }
+
+    /**
+     * Actualiza el conjunto de mesas ocupadas, del que salen tambien las libres. Se llama con el
+     * lock de la mesa.
+     */
+    private void marcarOcupada(int numeroMesa, boolean ocupada) {
+        int palabra = numeroMesa >> 6;
+        long bit = 1L << numeroMesa;
+        long anterior;
+        long nuevo;
+        do { // Otra mesa de la misma palabra puede cambiar al mismo tiempo
+            anterior = mesasOcupadas.get(palabra);
+            nuevo = ocupada ? anterior | bit : anterior & ~bit;
+        } while (!mesasOcupadas.compareAndSet(palabra, anterior, nuevo));
+    }
+
+    /**
+     * Escribe los cambios del catalogo que todavia estan pendientes. Llamar antes de salir.
+     */
+    public void flush() {
+        persistidor.flush();
+        try {
+            registro.flush();
+        } catch (IOException e) {
+            System.err.println("Error al guardar el registro de mesas: " + e.getMessage());
+        }
+    }
+
+    public synchronized void tick() {
         sistemaTime = sistemaTime.plusSeconds(1);
+        if (sistemaTime.equals(LocalTime.MIDNIGHT)) {
+            sistemaDia = sistemaDia.plus(1);
+        }
+        revisarFranja();
+    }
+
+    /**
+     * Avisa a los oyentes si la franja de precios ya no es la ultima avisada. Los precios solo
+     * cambian en los bordes de las franjas, asi la interfaz no tiene que revisarlos cada segundo.
+     */
+    private synchronized void revisarFranja() {
+        FranjaHoraria franja = getFranjaActual();
+        if (franja != franjaAnunciada) {
+            franjaAnunciada = franja;
+            despachador.execute(() -> {
+                for (BarListener listener : listeners) {
+                    listener.franjaCambiada(franja);
+                }
+            });
+        }
+    }
+
+    /**
+     * Devuelve el dia de la semana del sistema, que avanza cuando la hora pasa la medianoche.
+     * @return
+     */
+    public DayOfWeek getSistemaDia() {
+        return sistemaDia;
+    }
+
+    /**
+     * Cambia el dia de la semana del sistema.
+     * @param dia
+     */
+    public synchronized void setSistemaDia(DayOfWeek dia) {
+        sistemaDia = dia;
+        revisarFranja();
+    }
+
+    /**
+     * Devuelve la franja de precios que rige ahora segun las tarifas. La Happy Hour activada a
+     * mano tiene prioridad sobre las tarifas.
+     * @return
+     */
+    public FranjaHoraria getFranjaActual() {
+        if (isHappyHourActive) {
+            return FranjaHoraria.HAPPY_HOUR;
+        }
+        return tarifa.getFranja(sistemaDia, sistemaTime);
+    }
+
+    /**
+     * Devuelve el precio que tiene el articulo ahora.
+     * @param articulo
+     * @return Precio en centavos.
+     */
+    public long getPrecioActual(Articulo articulo) {
+        return articulo.getPrecio(getFranjaActual());
+    }
+
+    /**
+     * Devuelve las tarifas que definen la franja de cada momento de la semana.
+     * @return
+     */
+    public TarifaHoraria getTarifa() {
+        return tarifa;
+    }
+
+    /**
+     * Devuelve el archivo con los tickets de las mesas cerradas.
+     * @return
+     */
+    public ArchivoTickets getArchivoTickets() {
+        return tickets;
     }
 
     public LocalTime getSistemaTime() {
@@ -111,9 +518,10 @@ public class BarManager {
         return sistemaTime.getHour();
     }
 
-    public boolean setSistemaHora(int hour) {
+    public synchronized boolean setSistemaHora(int hour) {
         if (hour >= 0 && hour <= 23) {
             sistemaTime = sistemaTime.withHour(hour).withMinute(0).withSecond(0);
+            revisarFranja();
             return true;
         }
         return false;
@@ -126,36 +534,109 @@ public class BarManager {
     /**
      * Activa/Desactiva la hora feliz.
      */
-    public void toggleHappyHour() {
+    public synchronized void toggleHappyHour() {
         isHappyHourActive = !isHappyHourActive;
+        revisarFranja();
+    }
+
+    /**
+     * Metodo para agregar un consumo a una mesa.
+     */
+    public boolean agregarConsumoAMesa(int numeroMesa, Articulo articulo, int cantidad, long precioUnitarioBase, Map<Especificacion, Integer> opcionesSeleccionadas) {
+        return agregarConsumoAMesa(numeroMesa, articulo, cantidad, precioUnitarioBase, Consumo.aArreglo(articulo, opcionesSeleccionadas));
     }
 
     /**
      * Metodo para agregar un consumo a una mesa.
+     * @param opciones Cantidad elegida de cada especificacion, en el orden de {@link Articulo#getEspecificaciones()}; puede ser null.
      */
-    public boolean agregarConsumoAMesa(int numeroMesa, Articulo articulo, int cantidad, double precioUnitarioBase, Map<Especificacion, Integer> opcionesSeleccionadas) {
-        Mesa mesa = mesas.get(numeroMesa);
-        if (mesa != null && mesa.estaOcupada()) {
-            // Se pasa la hora actual del sistema al crear el consumo
-            Consumo consumo = new Consumo(articulo, cantidad, precioUnitarioBase, opcionesSeleccionadas, sistemaTime);
+    public boolean agregarConsumoAMesa(int numeroMesa, Articulo articulo, int cantidad, long precioUnitarioBase, int[] opciones) {
+        Mesa mesa = getMesa(numeroMesa);
+        if (mesa == null) {
+            return false;
+        }
+        // Se pasa la hora actual del sistema al crear el consumo
+        Consumo consumo = new Consumo(articulo, cantidad, precioUnitarioBase, opciones, sistemaTime);
+        String codigo = articulo.getCodigo();
+        synchronized (mesa) { // Solo bloquea a quien use esta misma mesa
+            if (!mesa.estaOcupada()) {
+                return false;
+            }
+            // Primero se marca el articulo en uso y despues se mira si sigue en el catalogo;
+            // eliminarArticulo lo saca y despues mira si esta en uso, asi uno de los dos ve al otro
+            sumarLinea(codigo, numeroMesa, 1);
+            if (articulos.get(codigo) != articulo) {
+                sumarLinea(codigo, numeroMesa, -1); // Se borro o se modifico mientras tanto
+                return false;
+            }
             mesa.agregarConsumo(consumo);
-            return true;
+            mesa.ultimoSeq = registro.registrarConsumo(numeroMesa, consumo);
         }
-        return false;
+        avisarMesaCambiada(mesa);
+        return true;
+    }
+
+    // Las operaciones sobre las mesas, sin registrarlas ni avisar. Se llaman con el lock de la
+    // mesa, o al reproducir el registro de mesas.
+
+    private boolean agregar(Mesa mesa, Consumo consumo) {
+        if (!mesa.estaOcupada()) {
+            return false;
+        }
+        mesa.agregarConsumo(consumo);
+        sumarLinea(consumo.getArticulo().getCodigo(), mesa.getNumero(), 1);
+        return true;
+    }
+
+    private boolean remover(Mesa mesa, long consumoId) {
+        Consumo removido = mesa.estaOcupada() ? mesa.removerConsumo(consumoId) : null;
+        if (removido == null) {
+            return false;
+        }
+        sumarLinea(removido.getArticulo().getCodigo(), mesa.getNumero(), -1);
+        return true;
+    }
+
+    private boolean abrir(Mesa mesa, LocalTime horaApertura) {
+        if (mesa.estaOcupada()) {
+            return false;
+        }
+        mesa.abrir(horaApertura);
+        marcarOcupada(mesa.getNumero(), true);
+        return true;
+    }
+
+    private Ticket cerrar(Mesa mesa) {
+        if (!mesa.estaOcupada()) {
+            return null;
+        }
+        Set<String> consumidos = mesa.getCantidadesPorArticulo().keySet();
+        Ticket ticket = mesa.cerrar(LocalDate.now(), sistemaTime);
+        quitarMesaDeLineas(consumidos, mesa.getNumero());
+        marcarOcupada(mesa.getNumero(), false);
+        return ticket;
     }
 
     /**
-     * Remueve un consumo de una mesa especifica por su indice.
+     * Remueve un consumo de una mesa especifica por su id. A diferencia de una posicion en la
+     * lista, el id sigue siendo valido aunque mientras tanto otra terminal agregue o quite consumos.
      * @param numeroMesa El número de la mesa.
-     * @param indiceConsumo El índice del consumo a remover (basado en la tabla/lista interna de consumos de la mesa).
+     * @param consumoId El id del consumo a remover, ver {@link Consumo#getId()}.
      * @return true si se removio exitosamente, false en caso contrario.
      */
-    public boolean removerConsumoDeMesa(int numeroMesa, int indiceConsumo) {
-        Mesa mesa = mesas.get(numeroMesa);
-        if (mesa != null && mesa.estaOcupada()) {
-            return mesa.removerConsumo(indiceConsumo);
+    public boolean removerConsumoDeMesa(int numeroMesa, long consumoId) {
+        Mesa mesa = getMesa(numeroMesa);
+        if (mesa == null) {
+            return false;
         }
-        return false;
+        synchronized (mesa) {
+            if (!remover(mesa, consumoId)) {
+                return false;
+            }
+            mesa.ultimoSeq = registro.registrarRemocion(numeroMesa, consumoId);
+        }
+        avisarMesaCambiada(mesa);
+        return true;
     }
 
 
@@ -165,23 +646,26 @@ public class BarManager {
      * @return 0 si se elimino con éxito, 1 si el articulo no existe, 2 si el articulo esta en uso en una mesa abierta.
      */
     public int eliminarArticulo(String codigo) {
-        if (!articulos.containsKey(codigo)) {
+        synchronized (catalogoLock) {
+            return eliminarArticuloSincronizado(codigo);
+        }
+    }
+
+    private int eliminarArticuloSincronizado(String codigo) {
+        Articulo articulo = articulos.remove(codigo);
+        if (articulo == null) {
             return 1; // Artículo no encontrado
         }
 
-        // Verificar si el artículo está en uso en alguna mesa abierta
-        for (Mesa mesa : mesas.values()) {
-            if (mesa.estaOcupada()) {
-                for (Consumo consumo : mesa.getConsumos()) {
-                    if (consumo.getArticulo().getCodigo().equals(codigo)) {
-                        return 2; // Artículo en uso
-                    }
-                }
-            }
+        // Verificar si el artículo está en uso en alguna mesa abierta. Se mira despues de sacarlo,
+        // asi un consumo que se agrega al mismo tiempo lo ve borrado y no se agrega
+        if (estaEnUso(codigo)) {
+            articulos.put(codigo, articulo);
+            return 2; // Artículo en uso
         }
 
-        articulos.remove(codigo);
-        guardarProductos("productos.csv"); // Guardar cambios en el CSV
+        indice.eliminar(codigo);
+        persistidor.eliminar(codigo); // Se guarda en segundo plano
         return 0; // Éxito
     }
 
@@ -192,12 +676,14 @@ public class BarManager {
      * @return true si el articulo fue modificado, false si no se encontro el articulo.
      */
     public boolean modificarArticulo(Articulo articuloModificado) {
-        if (articulos.containsKey(articuloModificado.getCodigo())) {
-            articulos.put(articuloModificado.getCodigo(), articuloModificado);
-            guardarProductos("productos.csv"); // Guardar cambios en el CSV
+        synchronized (catalogoLock) {
+            if (articulos.replace(articuloModificado.getCodigo(), articuloModificado) == null) {
+                return false;
+            }
+            indice.agregar(articuloModificado);
+            persistidor.guardar(articuloModificado); // Se guarda en segundo plano
             return true;
         }
-        return false;
     }
 
     /**
@@ -207,20 +693,49 @@ public class BarManager {
      * @return
      */
     public boolean abrirMesa(int numeroMesa, LocalTime horaApertura) {
-        Mesa mesa = mesas.get(numeroMesa);
-        if (mesa != null && !mesa.estaOcupada()) {
-            mesa.abrir(horaApertura);
-            return true;
+        Mesa mesa = getMesa(numeroMesa);
+        if (mesa == null) {
+            return false;
         }
-        return false;
+        synchronized (mesa) {
+            if (!abrir(mesa, horaApertura)) {
+                return false;
+            }
+            mesa.ultimoSeq = registro.registrarApertura(numeroMesa, horaApertura);
+        }
+        avisarMesaCambiada(mesa);
+        return true;
     }
 
     /**
-     * Funcion para cerrar una mesa.
+     * Funcion para cerrar una mesa. El ticket se guarda en el archivo de tickets antes de cerrar
+     * la mesa, con la secuencia de su ultima operacion registrada: si el programa se corta antes
+     * de que el cierre llegue al registro, al arrancar se reconoce el ticket y la mesa se cierra
+     * sin hacer otro. Mientras se guarda solo queda bloqueada esta mesa.
      * @param numeroMesa El numero de la mesa que se desea cerrar.
-     * @return
+     * @return El texto del ticket, o null si la mesa no estaba abierta.
+     * @throws IOException Si no se pudo guardar el ticket o el registro de la mesa; la mesa queda
+     *                     abierta, sin cambios.
      */
-    public String cerrarMesa(int numeroMesa) { Mesa mesa = mesas.get(numeroMesa); if (mesa != null && mesa.estaOcupada()) { return mesa.cerrar(); } return null; }
+    public String cerrarMesa(int numeroMesa) throws IOException {
+        Mesa mesa = getMesa(numeroMesa);
+        if (mesa == null) {
+            return null;
+        }
+        Ticket ticket;
+        synchronized (mesa) {
+            if (!mesa.estaOcupada()) {
+                return null;
+            }
+            // La ultima operacion de la mesa tiene que estar en disco para reconocer el ticket
+            registro.flush();
+            ticket = tickets.guardar(mesa.getTicket(LocalDate.now(), sistemaTime), mesa.ultimoSeq);
+            cerrar(mesa);
+            mesa.ultimoSeq = registro.registrarCierre(numeroMesa);
+        }
+        avisarMesaCambiada(mesa);
+        return ticket.getTexto();
+    }
 
     /**
      * Funcion para agregar un articulo nuevo.
@@ -228,32 +743,105 @@ public class BarManager {
      * @return
      */
     public boolean addArticulo(Articulo articulo) {
-        if (articulos.containsKey(articulo.getCodigo())) {
-            return false;
+        synchronized (catalogoLock) {
+            if (articulos.putIfAbsent(articulo.getCodigo(), articulo) != null) {
+                return false;
+            }
+            indice.agregar(articulo);
+            persistidor.guardar(articulo); // Se guarda en segundo plano
+            return true;
         }
-        articulos.put(articulo.getCodigo(), articulo);
-        guardarProductos("productos.csv"); // Guardar cambios en el CSV
-        return true;
     }
-    public Mesa getMesa(int numeroMesa) { return mesas.get(numeroMesa); }
+    public Mesa getMesa(int numeroMesa) { return numeroMesa >= 1 && numeroMesa <= mesas.length ? mesas[numeroMesa - 1] : null; }
 
     /**
-     * Devuelve una lista de todas las mesas que existen.
+     * Devuelve la cantidad de mesas del bar.
      * @return
      */
-    public List<Mesa> getTodasLasMesas() { List<Mesa> sortedMesas = new ArrayList<>(mesas.values()); Collections.sort(sortedMesas, Comparator.comparingInt(Mesa::getNumero)); return Collections.unmodifiableList(sortedMesas); }
+    public int getCantidadMesas() { return mesas.length; }
+
+    /**
+     * Devuelve una lista de todas las mesas que existen, ordenadas por numero.
+     * @return
+     */
+    public List<Mesa> getTodasLasMesas() { return todasLasMesas; }
+
+    /**
+     * Devuelve una copia del conjunto de mesas libres: el bit N esta encendido si la mesa N esta libre.
+     * @return
+     */
+    public BitSet getMesasLibres() {
+        BitSet libres = getMesasOcupadas();
+        libres.flip(1, mesas.length + 1);
+        return libres;
+    }
+
+    /**
+     * Devuelve una copia del conjunto de mesas ocupadas: el bit N esta encendido si la mesa N esta ocupada.
+     * @return
+     */
+    public BitSet getMesasOcupadas() {
+        long[] palabras = new long[mesasOcupadas.length()];
+        for (int i = 0; i < palabras.length; i++) {
+            palabras[i] = mesasOcupadas.get(i);
+        }
+        return BitSet.valueOf(palabras);
+    }
+
+    /**
+     * Devuelve la cantidad de mesas ocupadas.
+     * @return
+     */
+    public int getCantidadMesasOcupadas() {
+        int cantidad = 0;
+        for (int i = 0; i < mesasOcupadas.length(); i++) {
+            cantidad += Long.bitCount(mesasOcupadas.get(i));
+        }
+        return cantidad;
+    }
 
     /**
      * Devuelve una lista de los numeros de mesas libres.
      * @return
      */
-    public List<Integer> getNumerosMesasLibres() { return mesas.values().stream().filter(m -> !m.estaOcupada()).map(Mesa::getNumero).sorted().collect(Collectors.toList()); }
+    public List<Integer> getNumerosMesasLibres() { return numeros(getMesasLibres()); }
 
     /**
      * Devuelve una lista de los numeros de mesas ocupadas.
      * @return
      */
-    public List<Integer> getNumerosMesasOcupadas() { return mesas.values().stream().filter(Mesa::estaOcupada).map(Mesa::getNumero).sorted().collect(Collectors.toList()); }
+    public List<Integer> getNumerosMesasOcupadas() { return numeros(getMesasOcupadas()); }
+
+    /**
+     * Informa si el articulo tiene consumos en alguna mesa abierta.
+     * @param codigo Codigo del articulo.
+     * @return
+     */
+    public boolean estaEnUso(String codigo) { return lineasPorArticulo.containsKey(codigo); }
+
+    /**
+     * Devuelve las mesas abiertas que tienen consumos del articulo: el bit N esta encendido si la mesa N lo tiene.
+     * @param codigo Codigo del articulo.
+     * @return
+     */
+    public BitSet getMesasConArticulo(String codigo) {
+        BitSet resultado = new BitSet();
+        Map<Integer, Integer> porMesa = lineasPorArticulo.get(codigo);
+        if (porMesa != null) {
+            for (int numeroMesa : porMesa.keySet()) {
+                resultado.set(numeroMesa);
+            }
+        }
+        return resultado;
+    }
+
+    private static List<Integer> numeros(BitSet conjunto) {
+        List<Integer> numeros = new ArrayList<>(conjunto.cardinality());
+        for (int n = conjunto.nextSetBit(0); n >= 0; n = conjunto.nextSetBit(n + 1)) {
+            numeros.add(n);
+        }
+        return numeros;
+    }
 
     /**
      * Devuelve una lista de todos los articulos creados.
@@ -261,6 +849,14 @@ public class BarManager {
      */
     public Map<String, Articulo> getTodosLosArticulos() { return Collections.unmodifiableMap(articulos); }
 
+    /**
+     * Busca articulos por prefijos de las palabras de su descripcion o de su codigo, sin
+     * distinguir mayusculas ni tildes. Por ejemplo "hamb cla" encuentra "Hamburguesa Clasica".
+     * @param consulta Texto a buscar.
+     * @return Codigos de los articulos que coinciden, o null si la consulta esta vacia (todos).
+     */
+    public Set<String> buscarArticulos(String consulta) { return indice.buscar(consulta); }
+
     /**
      * Devuelve un Articulo.
      * @param codigo Segun el codigo diferencia los articulos.
@@ -0,0 +1,158 @@
+package bar;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Carga las imagenes de los productos en hilos aparte y guarda las miniaturas ya escaladas.
+ * <p>
+ * Las miniaturas quedan en un cache LRU por ruta con una cantidad maxima de entradas, asi
+ * reconstruir la grilla de productos no vuelve a decodificar ninguna imagen. Si varios paneles
+ * piden la misma imagen mientras se esta cargando, se carga una sola vez y se avisa a todos.
+ * Las imagenes que son archivos pasan ademas por {@link MiniaturasEnDisco}, para no decodificar
+ * los originales en cada arranque.
+ */
+public class CacheImagenes {
+    /** Marca las rutas que no se pudieron cargar, para no volver a intentarlo. */
+    private static final Image SIN_IMAGEN = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+    private final int tamano;
+    private final Map<String, Image> miniaturas;
+    /** Rutas que se estan cargando y quienes esperan cada una. */
+    private final Map<String, List<Consumer<Image>>> enCurso = new HashMap<>();
+    private final ExecutorService trabajadores;
+    private final MiniaturasEnDisco enDisco;
+
+    /**
+     * @param tamano Ancho y alto de las miniaturas, en pixeles.
+     * @param capacidad Cantidad maxima de miniaturas guardadas.
+     * @param directorio Directorio donde se guardan las miniaturas en disco, o null para no guardarlas.
+     */
+    public CacheImagenes(int tamano, int capacidad, String directorio) {
+        this.tamano = tamano;
+        this.enDisco = directorio != null ? new MiniaturasEnDisco(directorio, tamano) : null;
+        this.miniaturas = new LinkedHashMap<String, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+                return size() > capacidad;
+            }
+        };
+        int hilos = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger numero = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "imagenes-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY); // Que no le quite tiempo a la interfaz
+            return t;
+        });
+    }
+
+    /**
+     * Pide la miniatura de una imagen. Si ya esta en el cache se entrega enseguida, en el mismo
+     * hilo; si no, se carga en segundo plano y se entrega en el hilo de Swing.
+     * @param ruta Ruta del archivo o recurso de la imagen.
+     * @param alCargar Recibe la miniatura. No se llama si la imagen no se pudo cargar.
+     */
+    public void cargar(String ruta, Consumer<Image> alCargar) {
+        Image guardada;
+        synchronized (this) {
+            guardada = miniaturas.get(ruta);
+            if (guardada == null) {
+                List<Consumer<Image>> esperando = enCurso.get(ruta);
+                if (esperando == null) {
+                    esperando = new ArrayList<>();
+                    enCurso.put(ruta, esperando);
+                    trabajadores.execute(() -> procesar(ruta));
+                }
+                esperando.add(alCargar);
+                return;
+            }
+        }
+        if (guardada != SIN_IMAGEN) {
+            alCargar.accept(guardada);
+        }
+    }
+
+    /**
+     * Devuelve la miniatura si ya esta cargada.
+     * @param ruta
+     * @return La miniatura, o null si no esta en el cache o no se pudo cargar.
+     */
+    public synchronized Image obtener(String ruta) {
+        Image guardada = miniaturas.get(ruta);
+        return guardada == SIN_IMAGEN ? null : guardada;
+    }
+
+    private void procesar(String ruta) {
+        Image miniatura = null;
+        try {
+            File archivo = new File(ruta);
+            if (enDisco != null && archivo.isFile()) {
+                miniatura = enDisco.obtener(archivo);
+            } else {
+                BufferedImage original = leer(ruta);
+                if (original != null) {
+                    miniatura = escalar(original, tamano, tamano);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("No se pudo cargar la imagen: " + ruta);
+        }
+        List<Consumer<Image>> esperando;
+        synchronized (this) {
+            miniaturas.put(ruta, miniatura != null ? miniatura : SIN_IMAGEN);
+            esperando = enCurso.remove(ruta);
+        }
+        if (miniatura != null) {
+            Image lista = miniatura;
+            SwingUtilities.invokeLater(() -> esperando.forEach(c -> c.accept(lista)));
+        }
+    }
+
+    private BufferedImage leer(String ruta) throws IOException {
+        File archivo = new File(ruta);
+        if (archivo.exists()) {
+            return ImageIO.read(archivo);
+        }
+        URL recurso = getClass().getClassLoader().getResource(ruta);
+        return recurso != null ? ImageIO.read(recurso) : null;
+    }
+
+    /**
+     * Escala la imagen reduciendola a la mitad en cada paso y con interpolacion bicubica al
+     * final, que da un resultado parecido a SCALE_SMOOTH sin su costo.
+     */
+    static BufferedImage escalar(BufferedImage imagen, int ancho, int alto) {
+        BufferedImage actual = imagen;
+        int w = imagen.getWidth();
+        int h = imagen.getHeight();
+        do {
+            w = Math.max(ancho, w / 2);
+            h = Math.max(alto, h / 2);
+            BufferedImage paso = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = paso.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g2d.drawImage(actual, 0, 0, w, h, null);
+            g2d.dispose();
+            actual = paso;
+        } while (w != ancho || h != alto);
+        return actual;
+    }
+}
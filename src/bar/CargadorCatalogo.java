@@ -0,0 +1,312 @@
+package bar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Cargador de productos.csv pensado para catalogos grandes.
+ * <p>
+ * El archivo se divide en bloques que terminan en un salto de linea y cada bloque se procesa en
+ * el ForkJoinPool comun. Los campos se recorren por posicion dentro del bloque de bytes, sin
+ * {@code split} ni {@code trim}: solo se crean los String que terminan guardados en el Articulo.
+ * Los objetos resultantes son los mismos que arma {@link Articulo#Articulo(String, String, long, long, long, String, String)}
+ * a partir de cada fila.
+ */
+public class CargadorCatalogo {
+    /** Tamaño aproximado de cada bloque que se procesa en paralelo. */
+    private static final int TAMANO_BLOQUE = 256 * 1024;
+
+    private static final int CAMPOS_BASICOS = 7;
+
+    /** Mismo juego de caracteres que usa FileReader, cuyos delimitadores son ASCII. */
+    private final Charset charset = Charset.defaultCharset();
+
+    private CargadorCatalogo() {
+    }
+
+    /**
+     * Carga los articulos de un archivo CSV con encabezado.
+     * <p>
+     * Igual que la carga fila por fila, si un precio tiene un formato invalido se entregan los
+     * articulos anteriores a esa fila y se lanza la excepcion.
+     *
+     * @param filename Ruta del CSV.
+     * @param destino Recibe cada articulo en el orden del archivo.
+     * @throws IOException Si no se pudo leer el archivo.
+     * @throws NumberFormatException Si el precio de alguna fila no es un numero.
+     */
+    public static void cargar(String filename, Consumer<Articulo> destino) throws IOException {
+        new CargadorCatalogo().leer(filename, destino);
+    }
+
+    private void leer(String filename, Consumer<Articulo> destino) throws IOException {
+        List<Bloque> bloques;
+        try (FileChannel canal = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = siguienteLinea(canal, 0, tamano); // Saltar encabezado
+            List<Long> cortes = new ArrayList<>();
+            cortes.add(inicio);
+            for (long pos = inicio + TAMANO_BLOQUE; pos < tamano; pos += TAMANO_BLOQUE) {
+                long corte = siguienteLinea(canal, Math.max(pos, cortes.get(cortes.size() - 1)), tamano);
+                if (corte >= tamano) {
+                    break;
+                }
+                cortes.add(corte);
+            }
+            cortes.add(tamano);
+
+            bloques = IntStream.range(0, cortes.size() - 1)
+                    .parallel()
+                    .mapToObj(i -> procesarBloque(canal, cortes.get(i), cortes.get(i + 1)))
+                    .collect(Collectors.toList());
+        }
+
+        for (Bloque bloque : bloques) {
+            if (bloque.errorDeLectura != null) {
+                throw bloque.errorDeLectura;
+            }
+        }
+        for (Bloque bloque : bloques) {
+            bloque.articulos.forEach(destino);
+            if (bloque.error != null) {
+                throw bloque.error;
+            }
+        }
+    }
+
+    /**
+     * Devuelve la posicion siguiente al primer fin de linea a partir de {@code desde}.
+     */
+    private static long siguienteLinea(FileChannel canal, long desde, long tamano) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long pos = desde;
+        while (pos < tamano) {
+            buffer.clear();
+            int leidos = canal.read(buffer, pos);
+            if (leidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < leidos; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return pos + i + 1;
+                }
+                if (b == '\r') {
+                    // "\r\n" cuenta como un solo fin de linea, igual que en BufferedReader.readLine()
+                    if (i + 1 < leidos) {
+                        return buffer.get(i + 1) == '\n' ? pos + i + 2 : pos + i + 1;
+                    }
+                    ByteBuffer uno = ByteBuffer.allocate(1);
+                    boolean hayLf = canal.read(uno, pos + i + 1) == 1 && uno.get(0) == '\n';
+                    return hayLf ? pos + i + 2 : pos + i + 1;
+                }
+            }
+            pos += leidos;
+        }
+        return tamano;
+    }
+
+    private Bloque procesarBloque(FileChannel canal, long desde, long hasta) {
+        Bloque bloque = new Bloque();
+        byte[] datos = new byte[(int) (hasta - desde)];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(datos);
+            long pos = desde;
+            while (buffer.hasRemaining()) {
+                int leidos = canal.read(buffer, pos);
+                if (leidos < 0) {
+                    break;
+                }
+                pos += leidos;
+            }
+        } catch (IOException e) {
+            bloque.errorDeLectura = e;
+            return bloque;
+        }
+
+        int[] campos = new int[CAMPOS_BASICOS + 1];
+        int inicioLinea = 0;
+        while (inicioLinea < datos.length) {
+            int finLinea = inicioLinea;
+            while (finLinea < datos.length && datos[finLinea] != '\n' && datos[finLinea] != '\r') {
+                finLinea++;
+            }
+            try {
+                Articulo articulo = parsearLinea(datos, inicioLinea, finLinea, campos);
+                if (articulo != null) {
+                    bloque.articulos.add(articulo);
+                }
+            } catch (NumberFormatException e) {
+                bloque.error = e;
+                return bloque;
+            }
+            inicioLinea = finLinea + 1;
+        }
+        return bloque;
+    }
+
+    /**
+     * Arma un Articulo a partir de la fila {@code [inicio, fin)}. Las lineas vacias (por ejemplo la
+     * que queda entre "\r" y "\n") tienen un solo campo y se descartan igual que las incompletas.
+     *
+     * @param campos Arreglo reutilizable donde se guardan las posiciones de las comas.
+     * @return El articulo, o null si la fila tiene menos de 7 campos.
+     */
+    private Articulo parsearLinea(byte[] datos, int inicio, int fin, int[] campos) {
+        // campos[i] es el inicio del campo i; campos[i + 1] - 1 es la coma que lo cierra
+        int cantidad = 1;
+        campos[0] = inicio;
+        for (int i = inicio; i < fin && cantidad < campos.length; i++) {
+            if (datos[i] == ',') {
+                campos[cantidad++] = i + 1;
+            }
+        }
+        if (cantidad < CAMPOS_BASICOS) {
+            return null;
+        }
+        int finUltimo = fin;
+        if (cantidad == campos.length) {
+            finUltimo = campos[CAMPOS_BASICOS] - 1; // Hay columnas de mas, se ignoran
+        }
+
+        String codigo = texto(datos, campos[0], campos[1] - 1);
+        String nombre = texto(datos, campos[1], campos[2] - 1);
+        long precioDiurno = parsearCentavos(datos, campos[2], campos[3] - 1);
+        long precioNocturno = parsearCentavos(datos, campos[3], campos[4] - 1);
+        long precioHappyHour = parsearCentavos(datos, campos[4], campos[5] - 1);
+        String imagenPath = texto(datos, campos[5], campos[6] - 1);
+        List<Especificacion> especificaciones = parsearEspecificaciones(datos, campos[6], finUltimo);
+
+        return new Articulo(codigo, nombre, precioDiurno, precioNocturno, precioHappyHour, imagenPath, especificaciones);
+    }
+
+    /**
+     * Equivalente a {@code Articulo.parseEspecificaciones}: grupos separados por ";" con tres
+     * partes separadas por ":" (las partes vacias del final no cuentan, como en String.split).
+     */
+    private List<Especificacion> parsearEspecificaciones(byte[] datos, int inicio, int fin) {
+        List<Especificacion> especificaciones = new ArrayList<>();
+        while (inicio < fin && (datos[inicio] & 0xFF) <= ' ') {
+            inicio++;
+        }
+        while (fin > inicio && (datos[fin - 1] & 0xFF) <= ' ') {
+            fin--;
+        }
+        int desde = inicio;
+        while (desde <= fin) {
+            int hasta = desde;
+            while (hasta < fin && datos[hasta] != ';') {
+                hasta++;
+            }
+            Especificacion spec = parsearEspecificacion(datos, desde, hasta);
+            if (spec != null) {
+                especificaciones.add(spec);
+            }
+            desde = hasta + 1;
+        }
+        return especificaciones;
+    }
+
+    private Especificacion parsearEspecificacion(byte[] datos, int inicio, int fin) {
+        int[] partes = new int[4];
+        int cantidad = 1;
+        partes[0] = inicio;
+        for (int i = inicio; i < fin; i++) {
+            if (datos[i] == ':') {
+                if (cantidad == partes.length) {
+                    partes = Arrays.copyOf(partes, partes.length * 2);
+                }
+                partes[cantidad++] = i + 1;
+            }
+        }
+        // Descartar las partes vacias del final
+        int finParte = fin;
+        while (cantidad > 0 && partes[cantidad - 1] == finParte) {
+            cantidad--;
+            finParte = cantidad > 0 ? partes[cantidad] - 1 : inicio;
+        }
+        if (cantidad != 3) {
+            return null;
+        }
+        try {
+            String nombre = texto(datos, partes[0], partes[1] - 1);
+            TipoEspecificacion tipo = TipoEspecificacion.valueOf(texto(datos, partes[1], partes[2] - 1).toUpperCase());
+            long precio = parsearCentavos(datos, partes[2], finParte);
+            return Especificacion.obtener(nombre, tipo, precio);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error al parsear especificación (tipo o número inválido): " + new String(datos, inicio, fin - inicio, charset));
+            return null;
+        }
+    }
+
+    /**
+     * Crea el String del campo sin los espacios de los extremos, como String.trim(). Los bytes
+     * de caracteres multibyte son todos mayores a 0x7F, asi que no se confunden con espacios.
+     */
+    private String texto(byte[] datos, int inicio, int fin) {
+        while (inicio < fin && (datos[inicio] & 0xFF) <= ' ') {
+            inicio++;
+        }
+        while (fin > inicio && (datos[fin - 1] & 0xFF) <= ' ') {
+            fin--;
+        }
+        return new String(datos, inicio, fin - inicio, charset);
+    }
+
+    /**
+     * Convierte el campo a centavos sin crear un String para los casos comunes ("123", "45.50"),
+     * con el mismo resultado que {@link Dinero#parsear}. Cualquier otro formato se delega a este.
+     */
+    private long parsearCentavos(byte[] datos, int inicio, int fin) {
+        int i = inicio;
+        int f = fin;
+        while (i < f && (datos[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        while (f > i && (datos[f - 1] & 0xFF) <= ' ') {
+            f--;
+        }
+        boolean negativo = i < f && datos[i] == '-';
+        int pos = negativo ? i + 1 : i;
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; pos < f; pos++) {
+            byte b = datos[pos];
+            if (b >= '0' && b <= '9') {
+                mantisa = mantisa * 10 + (b - '0');
+                digitos++;
+                if (decimales >= 0) {
+                    decimales++;
+                }
+            } else if (b == '.' && decimales < 0) {
+                decimales = 0;
+            } else {
+                break;
+            }
+        }
+        if (pos < f || digitos == 0 || digitos > 16 || decimales > 2) {
+            return Dinero.parsear(new String(datos, i, f - i, charset));
+        }
+        return Dinero.desdeDigitos(mantisa, decimales, negativo);
+    }
+
+    /**
+     * Resultado de procesar un bloque del archivo.
+     */
+    private static class Bloque {
+        final List<Articulo> articulos = new ArrayList<>();
+        NumberFormatException error;
+        IOException errorDeLectura;
+    }
+}
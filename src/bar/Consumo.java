@@ -2,62 +2,143 @@ package bar;
 
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Todas las funciones relacionadas a obtener informacion de un consumo.
+ * <p>
+ * Las opciones elegidas se guardan como un int[] con la cantidad de cada especificacion, en la
+ * misma posicion que la especificacion tiene en el articulo. Los consumos sin opciones comparten
+ * un mismo arreglo vacio.
+ * <p>
+ * Cada consumo tiene un id que no se repite entre los consumos del programa y crece en el orden
+ * en que se crean; las mesas guardan y quitan sus consumos por ese id.
  */
 public class Consumo {
-    Articulo articulo; // Ahora almacena el objeto Articulo directamente
-    int cantidad;
-    double precioUnitarioBase; // El precio del artículo sin extras
-    Map<Especificacion, Integer> opcionesSeleccionadas;
-    private LocalTime horaConsumo; // Nuevo campo para almacenar la hora exacta del consumo
+    private static final int[] SIN_OPCIONES = new int[0];
+    /** Ultimo id asignado. */
+    private static final AtomicLong ULTIMO_ID = new AtomicLong();
+
+    private final long id;
+    final Articulo articulo; // Ahora almacena el objeto Articulo directamente
+    final int cantidad;
+    final long precioUnitarioBase; // El precio del artículo sin extras, en centavos
+    private final int[] opciones;
+    private final LocalTime horaConsumo; // Nuevo campo para almacenar la hora exacta del consumo
+    // El consumo no cambia despues de crearse, asi que el subtotal se calcula una sola vez
+    private final long subtotal;
 
     /**
      * Devuelve toda la informacion de un consumo en base a un articulo.
      * @param articulo
      * @param cantidad
-     * @param precioUnitarioBase
-     * @param opcionesSeleccionadas
+     * @param precioUnitarioBase Precio en centavos.
+     * @param opciones Cantidad elegida de cada especificacion, en el orden de {@link Articulo#getEspecificaciones()}; puede ser null.
      * @param horaConsumo Hora exacta en que se registra el consumo
      */
-    public Consumo(Articulo articulo, int cantidad, double precioUnitarioBase, Map<Especificacion, Integer> opcionesSeleccionadas, LocalTime horaConsumo) {
+    public Consumo(Articulo articulo, int cantidad, long precioUnitarioBase, int[] opciones, LocalTime horaConsumo) {
+        this(ULTIMO_ID.incrementAndGet(), articulo, cantidad, precioUnitarioBase, opciones, horaConsumo);
+    }
+
+    /**
+     * Vuelve a crear un consumo guardado con su id original. Los consumos nuevos que se creen
+     * despues tendran ids mayores.
+     */
+    Consumo(long id, Articulo articulo, int cantidad, long precioUnitarioBase, int[] opciones, LocalTime horaConsumo) {
+        ULTIMO_ID.accumulateAndGet(id, Math::max);
+        this.id = id;
         this.articulo = articulo;
         this.cantidad = cantidad;
         this.precioUnitarioBase = precioUnitarioBase;
-        this.opcionesSeleccionadas = opcionesSeleccionadas;
+        this.opciones = compactar(opciones, articulo.getEspecificaciones().size());
         this.horaConsumo = horaConsumo;
+        this.subtotal = (precioUnitarioBase + getCostoDeOpciones()) * cantidad;
     }
 
     /**
-     * En base a las especificaciones agregadas al consumo, devuelve su costo final.
-     * @return
+     * Devuelve toda la informacion de un consumo en base a un articulo.
+     * @param articulo
+     * @param cantidad
+     * @param precioUnitarioBase Precio en centavos.
+     * @param opcionesSeleccionadas Cantidad de cada especificacion del articulo; puede ser null.
+     * @param horaConsumo Hora exacta en que se registra el consumo
      */
-    public double getCostoDeOpciones() {
-        double costoOpciones = 0;
-        if (opcionesSeleccionadas != null) {
-            for (Map.Entry<Especificacion, Integer> entry : opcionesSeleccionadas.entrySet()) {
-                costoOpciones += entry.getKey().getPrecioPorUnidad() * entry.getValue();
+    public Consumo(Articulo articulo, int cantidad, long precioUnitarioBase, Map<Especificacion, Integer> opcionesSeleccionadas, LocalTime horaConsumo) {
+        this(articulo, cantidad, precioUnitarioBase, aArreglo(articulo, opcionesSeleccionadas), horaConsumo);
+    }
+
+    /**
+     * Convierte las opciones por especificacion en cantidades por posicion.
+     * @throws IllegalArgumentException Si alguna especificacion no es del articulo.
+     */
+    static int[] aArreglo(Articulo articulo, Map<Especificacion, Integer> opcionesSeleccionadas) {
+        if (opcionesSeleccionadas == null || opcionesSeleccionadas.isEmpty()) {
+            return null;
+        }
+        List<Especificacion> especificaciones = articulo.getEspecificaciones();
+        int[] opciones = new int[especificaciones.size()];
+        for (Map.Entry<Especificacion, Integer> entry : opcionesSeleccionadas.entrySet()) {
+            int posicion = especificaciones.indexOf(entry.getKey());
+            if (posicion < 0) {
+                throw new IllegalArgumentException("La especificacion " + entry.getKey() + " no es de " + articulo.getCodigo());
             }
+            opciones[posicion] = entry.getValue();
+        }
+        return opciones;
+    }
+
+    /**
+     * Copia las opciones; si no hay ninguna elegida devuelve el arreglo vacio compartido.
+     */
+    private static int[] compactar(int[] opciones, int cantidadEspecificaciones) {
+        if (opciones == null) {
+            return SIN_OPCIONES;
+        }
+        if (opciones.length > cantidadEspecificaciones) {
+            throw new IllegalArgumentException("Hay " + opciones.length + " opciones para " + cantidadEspecificaciones + " especificaciones");
+        }
+        int largo = opciones.length;
+        while (largo > 0 && opciones[largo - 1] == 0) {
+            largo--; // Los ceros del final no hace falta guardarlos
+        }
+        return largo == 0 ? SIN_OPCIONES : Arrays.copyOf(opciones, largo);
+    }
+
+    /**
+     * En base a las especificaciones agregadas al consumo, devuelve su costo final en centavos.
+     * @return
+     */
+    public long getCostoDeOpciones() {
+        long costoOpciones = 0;
+        List<Especificacion> especificaciones = articulo.especificaciones;
+        for (int i = 0; i < opciones.length; i++) {
+            costoOpciones += especificaciones.get(i).getPrecioPorUnidad() * opciones[i];
         }
         return costoOpciones;
     }
 
     /**
-     * Devuelve el precio del articulo individual junto a los agregados.
+     * Devuelve el precio del articulo individual junto a los agregados, en centavos.
      * @return
      */
-    public double getPrecioUnitarioFinal() {
+    public long getPrecioUnitarioFinal() {
         return precioUnitarioBase + getCostoDeOpciones();
     }
 
     /**
-     * Devuelve el precio multiplicado la cantidad solicitada.
+     * Devuelve el precio multiplicado la cantidad solicitada, en centavos.
      * @return
      */
-    public double getSubtotal() {
-        return getPrecioUnitarioFinal() * cantidad;
+    public long getSubtotal() {
+        return subtotal;
     }
 
     /**
@@ -65,13 +146,13 @@ public class Consumo {
      * @return
      */
     public String getDetalle() {
-        if (opcionesSeleccionadas == null || opcionesSeleccionadas.isEmpty()) {
+        if (opciones.length == 0) {
             return "";
         }
         StringBuilder sb = new StringBuilder("(");
-        for (Map.Entry<Especificacion, Integer> entry : opcionesSeleccionadas.entrySet()) {
-            Especificacion spec = entry.getKey();
-            int value = entry.getValue();
+        for (int i = 0; i < opciones.length; i++) {
+            Especificacion spec = articulo.especificaciones.get(i);
+            int value = opciones[i];
             if (value > 0) {
                 sb.append(spec.getNombre());
                 if (spec.getTipo() == TipoEspecificacion.CANTIDAD) {
@@ -93,6 +174,12 @@ public class Consumo {
      */
     public Articulo getArticulo() { return articulo; }
 
+    /**
+     * Devuelve el id del consumo, que lo identifica dentro de su mesa.
+     * @return
+     */
+    public long getId() { return id; }
+
     /**
      * Deuelve la cantidad solicitada
      * @return
@@ -100,10 +187,24 @@ public class Consumo {
     public int getCantidad() { return cantidad; }
 
     /**
-     * Deuelve las opciones seleccionadas.
+     * Deuelve las opciones seleccionadas. Es una vista de solo lectura con las especificaciones
+     * elegidas, en el orden del articulo.
+     * @return
+     */
+    public Map<Especificacion, Integer> getOpcionesSeleccionadas() { return new OpcionesVista(); }
+
+    /**
+     * Devuelve la cantidad elegida de la especificacion que esta en esa posicion del articulo.
+     * @param posicion Posicion en {@link Articulo#getEspecificaciones()}.
+     * @return
+     */
+    public int getCantidadOpcion(int posicion) { return posicion < opciones.length ? opciones[posicion] : 0; }
+
+    /**
+     * Devuelve las opciones sin copiarlas, sin los ceros del final. No se deben modificar.
      * @return
      */
-    public Map<Especificacion, Integer> getOpcionesSeleccionadas() { return opcionesSeleccionadas; }
+    int[] getOpciones() { return opciones; }
 
     /**
      * Devuelve la hora a la que se realizo el Consumo.
@@ -120,4 +221,54 @@ public class Consumo {
     public String getHoraConsumoFormateada() {
         return horaConsumo.format(DateTimeFormatter.ofPattern("HH:mm"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Vista de las opciones como mapa, sin copiar el arreglo.
+     */
+    private class OpcionesVista extends AbstractMap<Especificacion, Integer> {
+        @Override
+        public Set<Entry<Especificacion, Integer>> entrySet() {
+            return new AbstractSet<Entry<Especificacion, Integer>>() {
+                @Override
+                public int size() {
+                    int elegidas = 0;
+                    for (int valor : opciones) {
+                        if (valor != 0) {
+                            elegidas++;
+                        }
+                    }
+                    return elegidas;
+                }
+
+                @Override
+                public Iterator<Entry<Especificacion, Integer>> iterator() {
+                    return new Iterator<Entry<Especificacion, Integer>>() {
+                        private int siguiente = buscar(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return siguiente < opciones.length;
+                        }
+
+                        @Override
+                        public Entry<Especificacion, Integer> next() {
+                            if (siguiente >= opciones.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<Especificacion, Integer> entry = new SimpleImmutableEntry<>(articulo.especificaciones.get(siguiente), opciones[siguiente]);
+                            siguiente = buscar(siguiente + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+
+        private int buscar(int desde) {
+            while (desde < opciones.length && opciones[desde] == 0) {
+                desde++;
+            }
+            return desde;
+        }
+    }
+}
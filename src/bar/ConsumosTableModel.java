@@ -0,0 +1,122 @@
+package bar;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modelo de la tabla de consumos de la mesa seleccionada.
+ * <p>
+ * Al elegir una mesa se copia su lista de consumos una sola vez; despues la copia se mantiene
+ * con los avisos de la mesa, que agregan o quitan una fila por vez. Los textos de cada celda se
+ * calculan cuando la tabla los dibuja, asi que solo se arman los de las filas visibles.
+ */
+public class ConsumosTableModel extends AbstractTableModel {
+    private static final String[] COLUMNAS = {"Producto", "Detalle", "Cantidad", "Hora", "Subtotal"};
+
+    private Mesa mesa;
+    private MesaListener oyente;
+    private List<Consumo> filas = new ArrayList<>();
+
+    /**
+     * Muestra los consumos de otra mesa. Si es la misma que ya se mostraba no hace nada.
+     * @param nueva La mesa a mostrar, o null para dejar la tabla vacia.
+     */
+    public void setMesa(Mesa nueva) {
+        if (nueva == mesa) {
+            return;
+        }
+        if (mesa != null) {
+            mesa.removeMesaListener(oyente);
+        }
+        mesa = nueva;
+        if (nueva == null) {
+            oyente = null;
+            filas = new ArrayList<>();
+        } else {
+            // Oyente nuevo por mesa: los avisos pendientes del anterior se descartan
+            oyente = new Oyente();
+            filas = new ArrayList<>(nueva.addMesaListener(oyente));
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Devuelve el consumo que se muestra en una fila.
+     * @param fila
+     * @return
+     */
+    public Consumo getConsumo(int fila) {
+        return filas.get(fila);
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNAS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Consumo c = filas.get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return c.getArticulo().getDescripcion();
+            case 1:
+                return c.getDetalle();
+            case 2:
+                return c.getCantidad();
+            case 3:
+                return c.getHoraConsumoFormateada();
+            default:
+                return Dinero.mostrar(c.getSubtotal());
+        }
+    }
+
+    /**
+     * Recibe los avisos de la mesa en su hilo y los aplica en el hilo de Swing.
+     */
+    private class Oyente implements MesaListener {
+        @Override
+        public void consumoAgregado(Mesa m, Consumo consumo) {
+            SwingUtilities.invokeLater(() -> {
+                if (oyente == this) {
+                    filas.add(consumo);
+                    fireTableRowsInserted(filas.size() - 1, filas.size() - 1);
+                }
+            });
+        }
+
+        @Override
+        public void consumoRemovido(Mesa m, Consumo consumo) {
+            SwingUtilities.invokeLater(() -> {
+                int indice = oyente == this ? filas.indexOf(consumo) : -1;
+                if (indice >= 0) {
+                    filas.remove(indice);
+                    fireTableRowsDeleted(indice, indice);
+                }
+            });
+        }
+
+        @Override
+        public void consumosReiniciados(Mesa m) {
+            SwingUtilities.invokeLater(() -> {
+                if (oyente == this && !filas.isEmpty()) {
+                    int ultima = filas.size() - 1;
+                    filas.clear();
+                    fireTableRowsDeleted(0, ultima);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package bar;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Funciones para manejar importes de dinero como {@code long} en centavos.
+ * <p>
+ * Las sumas y multiplicaciones de centavos son exactas, asi que los totales de las mesas no
+ * acumulan errores de redondeo. Solo se convierte a texto al mostrar o guardar un importe.
+ */
+public final class Dinero {
+    /** Cantidad maxima de digitos que se acumulan sin riesgo de desborde en el camino rapido. */
+    private static final int MAXIMO_DIGITOS = 16;
+
+    private Dinero() {
+    }
+
+    /**
+     * Convierte un importe escrito con punto decimal, por ejemplo "12.5", a centavos. Si tiene
+     * mas de dos decimales se redondea igual que se redondeaban los precios al guardar el CSV.
+     * @param texto Importe, admite espacios en los extremos.
+     * @return El importe en centavos.
+     * @throws NumberFormatException Si el texto no es un numero.
+     */
+    public static long parsear(String texto) {
+        String t = texto.trim();
+        boolean negativo = !t.isEmpty() && t.charAt(0) == '-';
+        int pos = negativo ? 1 : 0;
+        long valor = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; pos < t.length(); pos++) {
+            char c = t.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                valor = valor * 10 + (c - '0');
+                digitos++;
+                if (decimales >= 0) {
+                    decimales++;
+                }
+            } else if (c == '.' && decimales < 0) {
+                decimales = 0;
+            } else {
+                break;
+            }
+        }
+        if (pos == t.length() && digitos > 0 && digitos <= MAXIMO_DIGITOS && decimales <= 2) {
+            return desdeDigitos(valor, decimales, negativo);
+        }
+        // Formatos poco comunes ("1e3", "+2", muchos decimales)
+        try {
+            return new BigDecimal(t).setScale(2, RoundingMode.HALF_EVEN).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Importe fuera de rango: " + texto);
+        }
+    }
+
+    /**
+     * Arma los centavos a partir de los digitos leidos y la cantidad de decimales que tenian
+     * (-1 si no habia punto, hasta 2).
+     * @param digitos
+     * @param decimales
+     * @param negativo
+     * @return
+     */
+    static long desdeDigitos(long digitos, int decimales, boolean negativo) {
+        long centavos = decimales == 2 ? digitos : decimales == 1 ? digitos * 10 : digitos * 100;
+        return negativo ? -centavos : centavos;
+    }
+
+    /**
+     * Devuelve el importe con punto decimal y dos decimales, por ejemplo "12.50". Es el formato
+     * de productos.csv.
+     * @param centavos
+     * @return
+     */
+    public static String texto(long centavos) {
+        return texto(centavos, '.');
+    }
+
+    /**
+     * Devuelve el importe con dos decimales y el separador decimal del idioma del sistema, igual
+     * que {@code String.format("%.2f", importe)}.
+     * @param centavos
+     * @return
+     */
+    public static String textoLocal(long centavos) {
+        return texto(centavos, DecimalFormatSymbols.getInstance().getDecimalSeparator());
+    }
+
+    /**
+     * Devuelve el importe para mostrar en pantalla, por ejemplo "$12.50".
+     * @param centavos
+     * @return
+     */
+    public static String mostrar(long centavos) {
+        return "$" + textoLocal(centavos);
+    }
+
+    private static String texto(long centavos, char separador) {
+        StringBuilder sb = new StringBuilder(24);
+        long absoluto = Math.abs(centavos); // Long.MIN_VALUE no es un importe posible
+        if (centavos < 0) {
+            sb.append('-');
+        }
+        long resto = absoluto % 100;
+        sb.append(absoluto / 100).append(separador);
+        if (resto < 10) {
+            sb.append('0');
+        }
+        return sb.append(resto).toString();
+    }
+}
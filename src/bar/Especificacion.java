@@ -1,23 +1,50 @@
 package bar;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Apartado hecho especificamente para los extras en los consumos. Por ejemplo: Queso en una hamburguesa.
+ * <p>
+ * Es inmutable y se compara por valor. Las instancias se obtienen con {@link #obtener} y se
+ * comparten: la misma especificacion usada en cientos de articulos es un solo objeto.
  */
-public class Especificacion {
-    private String nombre;
-    private TipoEspecificacion tipo;
-    private double precioPorUnidad;
+public final class Especificacion {
+    /** Una instancia por cada combinacion distinta de nombre, tipo y precio. */
+    private static final Map<Especificacion, Especificacion> POOL = new ConcurrentHashMap<>();
+
+    private final String nombre;
+    private final TipoEspecificacion tipo;
+    private final long precioPorUnidad; // En centavos
+    private final int hash;
+
+    private Especificacion(String nombre, TipoEspecificacion tipo, long precioPorUnidad) {
+        this.nombre = nombre;
+        this.tipo = tipo;
+        this.precioPorUnidad = precioPorUnidad;
+        this.hash = Objects.hash(nombre, tipo, precioPorUnidad);
+    }
 
     /**
-     * Devuelve todos los valores de una especificacion.
+     * Devuelve la especificacion compartida con estos valores.
      * @param nombre
      * @param tipo
-     * @param precioPorUnidad
+     * @param precioPorUnidad Precio en centavos.
+     * @return
      */
-    public Especificacion(String nombre, TipoEspecificacion tipo, double precioPorUnidad) {
-        this.nombre = nombre;
-        this.tipo = tipo;
-        this.precioPorUnidad = precioPorUnidad;
+    public static Especificacion obtener(String nombre, TipoEspecificacion tipo, long precioPorUnidad) {
+        return intern(new Especificacion(nombre, tipo, precioPorUnidad));
+    }
+
+    /**
+     * Devuelve la instancia compartida igual a la recibida.
+     * @param spec
+     * @return
+     */
+    public static Especificacion intern(Especificacion spec) {
+        Especificacion existente = POOL.putIfAbsent(spec, spec);
+        return existente != null ? existente : spec;
     }
 
     /**
@@ -37,13 +64,33 @@ public class Especificacion {
     }
 
     /**
-     * Devuelve el precio de usar este agregado.
+     * Devuelve el precio de usar este agregado, en centavos.
      * @return
      */
-    public double getPrecioPorUnidad() {
+    public long getPrecioPorUnidad() {
         return precioPorUnidad;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Especificacion)) {
+            return false;
+        }
+        Especificacion otra = (Especificacion) o;
+        return hash == otra.hash
+                && tipo == otra.tipo
+                && precioPorUnidad == otra.precioPorUnidad
+                && nombre.equals(otra.nombre);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     @Override
     public String toString() {
         return nombre; // Para mostrar en JComboBox
@@ -0,0 +1,19 @@
+package bar;
+
+/**
+ * Franja de precios de un articulo. Cada franja usa uno de los tres precios del articulo.
+ */
+public enum FranjaHoraria {
+    /**
+     * Usa el precio diurno
+     */
+    DIURNO,
+    /**
+     * Usa el precio nocturno
+     */
+    NOCTURNO,
+    /**
+     * Usa el precio de la Happy Hour
+     */
+    HAPPY_HOUR
+}
@@ -0,0 +1,284 @@
+package bar;
+
+import java.text.Normalizer;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Indice en memoria para buscar articulos mientras se escribe.
+ * <p>
+ * La descripcion y el codigo se separan en palabras normalizadas (minusculas, sin tildes). Cada
+ * articulo ocupa una posicion fija y cada palabra guarda en un BitSet las posiciones de los
+ * articulos que la contienen. Las palabras estan ordenadas, asi las que empiezan con un prefijo
+ * son un rango contiguo; para los prefijos de una o dos letras, que abarcan muchas palabras, el
+ * resultado se mantiene ya calculado.
+ * <p>
+ * Una consulta con varias palabras devuelve los articulos que tienen alguna palabra que empieza
+ * con cada una. Si la consulta nueva solo agrega letras a la anterior y el resultado anterior es
+ * chico, se filtra ese resultado en lugar de volver a buscar en todo el indice.
+ */
+public class IndiceBusqueda {
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int PREFIJO_CORTO = 2;
+    /** Hasta este tamaño conviene filtrar el resultado anterior antes que volver a buscar. */
+    private static final int MAXIMO_PARA_FILTRAR = 512;
+
+    /** Posicion de cada articulo. Las posiciones no se reutilizan para otro codigo. */
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private String[] codigos = new String[64];
+    private String[][] palabrasPorPosicion = new String[64][];
+    private int siguientePosicion = 0;
+
+    private final TreeMap<String, BitSet> porPalabra = new TreeMap<>();
+    private final Map<String, BitSet> porPrefijoCorto = new HashMap<>();
+
+    private String[] ultimaConsulta;
+    private BitSet ultimoResultado;
+
+    /**
+     * Agrega un articulo al indice, o lo actualiza si ya estaba.
+     * @param articulo
+     */
+    public synchronized void agregar(Articulo articulo) {
+        String codigo = articulo.getCodigo();
+        Integer posicion = posiciones.get(codigo);
+        if (posicion != null) {
+            quitarPalabras(posicion);
+        } else {
+            posicion = siguientePosicion++;
+            if (posicion == codigos.length) {
+                codigos = Arrays.copyOf(codigos, posicion * 2);
+                palabrasPorPosicion = Arrays.copyOf(palabrasPorPosicion, posicion * 2);
+            }
+            codigos[posicion] = codigo;
+            posiciones.put(codigo, posicion);
+        }
+
+        Set<String> palabras = new LinkedHashSet<>(Arrays.asList(palabras(articulo.getDescripcion())));
+        palabras.addAll(Arrays.asList(palabras(codigo)));
+        String[] arreglo = palabras.toArray(new String[0]);
+        palabrasPorPosicion[posicion] = arreglo;
+        for (String palabra : arreglo) {
+            porPalabra.computeIfAbsent(palabra, p -> new BitSet()).set(posicion);
+            for (int largo = 1; largo <= PREFIJO_CORTO && largo <= palabra.length(); largo++) {
+                porPrefijoCorto.computeIfAbsent(palabra.substring(0, largo), p -> new BitSet()).set(posicion);
+            }
+        }
+        ultimaConsulta = null;
+    }
+
+    /**
+     * Agrega varios articulos al indice.
+     * @param articulos
+     */
+    public synchronized void agregarTodos(Collection<Articulo> articulos) {
+        for (Articulo articulo : articulos) {
+            agregar(articulo);
+        }
+    }
+
+    /**
+     * Quita un articulo del indice.
+     * @param codigo
+     */
+    public synchronized void eliminar(String codigo) {
+        Integer posicion = posiciones.remove(codigo);
+        if (posicion == null) {
+            return;
+        }
+        quitarPalabras(posicion);
+        codigos[posicion] = null;
+        ultimaConsulta = null;
+    }
+
+    private void quitarPalabras(int posicion) {
+        for (String palabra : palabrasPorPosicion[posicion]) {
+            BitSet conPalabra = porPalabra.get(palabra);
+            conPalabra.clear(posicion);
+            if (conPalabra.isEmpty()) {
+                porPalabra.remove(palabra);
+            }
+            // Se quita el articulo entero, asi que puede salir de todos sus prefijos
+            for (int largo = 1; largo <= PREFIJO_CORTO && largo <= palabra.length(); largo++) {
+                BitSet conPrefijo = porPrefijoCorto.get(palabra.substring(0, largo));
+                if (conPrefijo != null) {
+                    conPrefijo.clear(posicion);
+                }
+            }
+        }
+        palabrasPorPosicion[posicion] = null;
+    }
+
+    /**
+     * Busca los articulos que coinciden con la consulta.
+     * @param consulta Texto escrito por el usuario.
+     * @return Codigos de los articulos que coinciden, o null si la consulta esta vacia.
+     */
+    public synchronized Set<String> buscar(String consulta) {
+        String[] prefijos = palabras(consulta);
+        if (prefijos.length == 0) {
+            return null;
+        }
+
+        BitSet resultado;
+        if (refina(prefijos, ultimaConsulta) && ultimoResultado.cardinality() <= MAXIMO_PARA_FILTRAR) {
+            resultado = new BitSet();
+            for (int i = ultimoResultado.nextSetBit(0); i >= 0; i = ultimoResultado.nextSetBit(i + 1)) {
+                if (coincide(palabrasPorPosicion[i], prefijos)) {
+                    resultado.set(i);
+                }
+            }
+        } else {
+            resultado = buscarPrefijo(prefijos[0]);
+            for (int i = 1; i < prefijos.length && !resultado.isEmpty(); i++) {
+                resultado.and(buscarPrefijo(prefijos[i]));
+            }
+        }
+
+        ultimaConsulta = prefijos;
+        ultimoResultado = resultado;
+        return new Resultado((BitSet) resultado.clone(), codigos);
+    }
+
+    private BitSet buscarPrefijo(String prefijo) {
+        if (prefijo.length() <= PREFIJO_CORTO) {
+            BitSet conPrefijo = porPrefijoCorto.get(prefijo);
+            return conPrefijo != null ? (BitSet) conPrefijo.clone() : new BitSet();
+        }
+        BitSet resultado = new BitSet();
+        for (BitSet conPalabra : porPalabra.subMap(prefijo, prefijo + Character.MAX_VALUE).values()) {
+            resultado.or(conPalabra);
+        }
+        return resultado;
+    }
+
+    /**
+     * La consulta nueva refina a la anterior si tiene al menos sus mismas palabras, cada una
+     * igual o mas larga. En ese caso el resultado nuevo es un subconjunto del anterior.
+     */
+    private static boolean refina(String[] nueva, String[] anterior) {
+        if (anterior == null || nueva.length < anterior.length) {
+            return false;
+        }
+        for (int i = 0; i < anterior.length; i++) {
+            if (!nueva[i].startsWith(anterior[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean coincide(String[] palabras, String[] prefijos) {
+        if (palabras == null) {
+            return false;
+        }
+        for (String prefijo : prefijos) {
+            boolean alguna = false;
+            for (String palabra : palabras) {
+                if (palabra.startsWith(prefijo)) {
+                    alguna = true;
+                    break;
+                }
+            }
+            if (!alguna) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Separa un texto en palabras en minusculas y sin tildes, por ejemplo "Café Doble" queda
+     * como "cafe" y "doble".
+     */
+    static String[] palabras(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return new String[0];
+        }
+        String normalizado = texto;
+        if (!esAscii(texto)) { // Solo hace falta quitar tildes si hay caracteres no ASCII
+            normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        }
+        normalizado = normalizado.toLowerCase(Locale.ROOT);
+        List<String> palabras = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(normalizado)) {
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra);
+            }
+        }
+        return palabras.toArray(new String[0]);
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vista de solo lectura de un resultado. No copia los codigos: consulta las posiciones
+     * marcadas en el BitSet.
+     */
+    private class Resultado extends AbstractSet<String> {
+        private final BitSet bits;
+        private final String[] codigosResultado;
+
+        Resultado(BitSet bits, String[] codigosResultado) {
+            this.bits = bits;
+            this.codigosResultado = codigosResultado;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer posicion;
+            synchronized (IndiceBusqueda.this) {
+                posicion = posiciones.get(o);
+            }
+            return posicion != null && bits.get(posicion);
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int siguiente = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return siguiente >= 0;
+                }
+
+                @Override
+                public String next() {
+                    if (siguiente < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    String codigo = codigosResultado[siguiente];
+                    siguiente = bits.nextSetBit(siguiente + 1);
+                    return codigo;
+                }
+            };
+        }
+    }
+}
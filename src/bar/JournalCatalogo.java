@@ -0,0 +1,193 @@
+package bar;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Registro de solo-agregado con los cambios hechos al catalogo desde la ultima escritura completa
+ * de productos.csv. Cada cambio se guarda como una linea corta:
+ * <ul>
+ *     <li>{@code B,<modificado>,<tamano>} fecha (ms) y tamaño del CSV base sobre el que se
+ *     escribieron los registros siguientes. Se escribe cada vez que se abre el journal.</li>
+ *     <li>{@code U,<fila csv>} alta o modificacion de un articulo.</li>
+ *     <li>{@code D,<codigo>} baja de un articulo.</li>
+ * </ul>
+ * Si el CSV se edito con el programa cerrado, ya no coincide con la cabecera y los registros
+ * escritos sobre la version anterior se descartan: si no, pisarian la edicion.
+ * Cuando el journal supera {@link #UMBRAL_COMPACTACION} bytes se rota a un archivo ".1" y se
+ * reescribe el CSV base; recien cuando esa escritura termina se borra el rotado. Las escrituras
+ * las coordina {@link PersistidorCatalogo}.
+ */
+public class JournalCatalogo {
+    /** Tamaño a partir del cual se reescribe el CSV base y se vacia el journal. */
+    static final long UMBRAL_COMPACTACION = 64 * 1024;
+
+    private static final String ALTA = "U,";
+    private static final String BAJA = "D,";
+    private static final String BASE = "B,";
+
+    private final Path journal;
+    private final Path csv;
+    private final Path journalRotado;
+    private PrintWriter writer;
+
+    /**
+     * @param archivo Ruta del journal, por ejemplo: productos.journal
+     * @param csv Ruta del CSV base sobre el que se aplican los cambios.
+     */
+    public JournalCatalogo(String archivo, String csv) {
+        this.journal = Paths.get(archivo);
+        this.csv = Paths.get(csv);
+        this.journalRotado = Paths.get(archivo + ".1");
+    }
+
+    /**
+     * Aplica sobre el catalogo los cambios guardados, primero los de un journal rotado que no se
+     * llego a compactar y despues los del journal actual. Se saltean los registros escritos
+     * sobre otra version del CSV base.
+     * @param altas Recibe la fila CSV de cada alta/modificacion.
+     * @param bajas Recibe el codigo de cada baja.
+     * @return Cantidad de registros descartados por ser de otra version del CSV.
+     */
+    public int reproducir(Consumer<String> altas, Consumer<String> bajas) {
+        return reproducir(journalRotado, altas, bajas) + reproducir(journal, altas, bajas);
+    }
+
+    private int reproducir(Path archivo, Consumer<String> altas, Consumer<String> bajas) {
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        String base = base();
+        boolean vigente = false; // Todo registro va despues de una cabecera
+        int descartados = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo.toFile()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                try {
+                    if (line.startsWith(BASE)) {
+                        vigente = line.equals(base);
+                    } else if (!vigente) {
+                        descartados++;
+                    } else if (line.startsWith(ALTA)) {
+                        altas.accept(line.substring(ALTA.length()));
+                    } else if (line.startsWith(BAJA)) {
+                        bajas.accept(line.substring(BAJA.length()).trim());
+                    }
+                } catch (NumberFormatException e) {
+                    // Una linea cortada por un corte de luz no debe impedir leer el resto.
+                    System.err.println("Registro del journal ignorado: " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al leer el journal del catalogo: " + e.getMessage());
+        }
+        if (descartados > 0) {
+            System.err.println("Se descartan " + descartados + " registros de " + archivo + ": el CSV base cambio despues de escribirlos");
+        }
+        return descartados;
+    }
+
+    /**
+     * Devuelve la cabecera que corresponde al CSV base actual. Si el CSV no existe o no se puede
+     * leer, la cabecera lleva fecha y tamaño 0.
+     */
+    private String base() {
+        try {
+            return BASE + Files.getLastModifiedTime(csv).toMillis() + "," + Files.size(csv);
+        } catch (IOException e) {
+            return BASE + "0,0";
+        }
+    }
+
+    /**
+     * Devuelve el registro de alta o modificacion de un articulo.
+     * @param filaCsv La fila del articulo en el mismo formato que productos.csv.
+     * @return
+     */
+    public static String registroAlta(String filaCsv) {
+        return ALTA + filaCsv;
+    }
+
+    /**
+     * Devuelve el registro de baja de un articulo.
+     * @param codigo Codigo del articulo eliminado.
+     * @return
+     */
+    public static String registroBaja(String codigo) {
+        return BAJA + codigo;
+    }
+
+    /**
+     * Agrega varios registros al final del journal con una sola escritura.
+     * @param registros Registros armados con {@link #registroAlta(String)} o {@link #registroBaja(String)}.
+     */
+    public synchronized void escribir(List<String> registros) {
+        try {
+            if (writer == null) {
+                writer = new PrintWriter(new BufferedWriter(new FileWriter(journal.toFile(), true)));
+                writer.println(base()); // Los registros que siguen van sobre el CSV tal como esta ahora
+            }
+            for (String registro : registros) {
+                writer.println(registro);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Error al escribir el journal del catalogo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Informa si el journal ya es lo bastante grande como para reescribir el CSV base.
+     * @return
+     */
+    public synchronized boolean necesitaCompactar() {
+        try {
+            return Files.exists(journal) && Files.size(journal) > UMBRAL_COMPACTACION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Mueve el journal actual al archivo rotado antes de reescribir el CSV base. Si quedo un
+     * rotado de una compactacion que fallo, se le agregan los registros nuevos al final para no
+     * perder el orden.
+     */
+    public synchronized void rotar() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (!Files.exists(journal)) {
+            return;
+        }
+        if (Files.exists(journalRotado)) {
+            Files.write(journalRotado, Files.readAllBytes(journal), StandardOpenOption.APPEND);
+            Files.delete(journal);
+        } else {
+            Files.move(journal, journalRotado, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Borra el journal rotado una vez que el CSV base ya incluye sus cambios.
+     */
+    public synchronized void descartarRotado() {
+        try {
+            Files.deleteIfExists(journalRotado);
+        } catch (IOException e) {
+            System.err.println("Error al descartar el journal compactado: " + e.getMessage());
+        }
+    }
+}
@@ -1,68 +1,98 @@
 package bar;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Todas las funciones relacionadas con el cierre/apertura de mesas y sumar consumos a las mismas.
+ * <p>
+ * Es segura para usar desde varios hilos: las operaciones se sincronizan sobre la propia mesa,
+ * asi que los mozos que atienden mesas distintas nunca se bloquean entre si. Para combinar
+ * varias operaciones de forma atomica se puede usar {@code synchronized (mesa)}.
+ * <p>
+ * El total, la cantidad de items y las cantidades por articulo se actualizan al agregar o quitar
+ * cada consumo, asi consultarlos no recorre los consumos. Los consumos se guardan por su id, en
+ * el orden en que se agregaron, asi quitar uno no depende de su posicion.
  */
 public class Mesa {
-    int numero;
-    LocalTime horaApertura; // Cambiado a LocalTime para almacenar hora y minutos
-    ArrayList<Consumo> consumos;
+    final int numero;
+    volatile LocalTime horaApertura; // Cambiado a LocalTime para almacenar hora y minutos
+    final LinkedHashMap<Long, Consumo> consumos; // Id del consumo -> consumo
+    private volatile long total; // En centavos
+    private volatile int cantidadItems;
+    private final Map<String, Integer> cantidadesPorArticulo = new HashMap<>();
+    private final List<MesaListener> listeners = new CopyOnWriteArrayList<>();
+    long ultimoSeq; // Secuencia de la ultima operacion registrada en RegistroMesas, protegida por el lock de la mesa
 
     public Mesa(int numero) {
         this.numero = numero;
-        this.consumos = new ArrayList<>();
+        this.consumos = new LinkedHashMap<>();
+    }
+
+    private void sumar(Consumo consumo, int signo) {
+        cantidadItems += signo * consumo.getCantidad();
+        cantidadesPorArticulo.merge(consumo.getArticulo().getCodigo(), signo * consumo.getCantidad(), Integer::sum);
+        cantidadesPorArticulo.remove(consumo.getArticulo().getCodigo(), 0);
+        total += signo * consumo.getSubtotal();
+    }
+
+    private void reiniciarTotales() {
+        total = 0;
+        cantidadItems = 0;
+        cantidadesPorArticulo.clear();
     }
 
     /**
-     * Remueve un consumo de la lista usando su índice.
-     * @param indice El índice del consumo a remover.
-     * @return true si se removió exitosamente, false en caso contrario.
+     * Remueve un consumo de la mesa usando su id.
+     * @param consumoId El id del consumo a remover, ver {@link Consumo#getId()}.
+     * @return El consumo removido, o null si no esta en la mesa.
      */
-    public boolean removerConsumo(int indice) {
-        if (indice >= 0 && indice < this.consumos.size()) {
-            this.consumos.remove(indice);
-            return true;
+    public synchronized Consumo removerConsumo(long consumoId) {
+        Consumo removido = this.consumos.remove(consumoId);
+        if (removido != null) {
+            sumar(removido, -1);
+            for (MesaListener listener : listeners) {
+                listener.consumoRemovido(this, removido);
+            }
         }
-        return false;
+        return removido;
     }
 
     /**
-     * Funcion para cerrar una mesa que este ocupada, devolviendo el ticket de los consumos realizados.
-     * @return
+     * Arma el ticket de los consumos realizados, sin cerrar la mesa.
+     * @param fecha Dia en que se cierra la mesa.
+     * @param horaCierre Hora en que se cierra la mesa.
+     * @return El ticket, todavia sin numero.
      */
-    public String cerrar() {
-        StringBuilder ticket = new StringBuilder();
-        double total = 0;
-        ticket.append("Ticket - Mesa ").append(numero).append("\n");
-        ticket.append("----------------------------------------\n");
-        ticket.append(String.format("%-20s %5s %10s\n", "Producto", "Cant.", "Subtotal"));
-        ticket.append("----------------------------------------\n");
-
-        for (Consumo c : consumos) {
-            double subtotal = c.getSubtotal();
-            String descripcionCompleta = c.articulo.getDescripcion();
-            // Añadir detalle si existe
-            if (c.getDetalle() != null && !c.getDetalle().isEmpty()) {
-                descripcionCompleta += " " + c.getDetalle();
-            }
-
-            ticket.append(String.format("%-20.20s %5d %10.2f\n",
-                    descripcionCompleta, c.getCantidad(), subtotal));
-            total += subtotal;
+    public synchronized Ticket getTicket(LocalDate fecha, LocalTime horaCierre) {
+        List<Ticket.Linea> lineas = new ArrayList<>(consumos.size());
+        for (Consumo c : consumos.values()) {
+            lineas.add(Ticket.Linea.de(c));
         }
+        return new Ticket(0, numero, fecha, horaApertura, horaCierre, lineas, total);
+    }
 
-        ticket.append("----------------------------------------\n");
-        ticket.append(String.format("TOTAL: %26.2f\n", total));
-        ticket.append("----------------------------------------\n");
+    /**
+     * Funcion para cerrar una mesa que este ocupada, devolviendo el ticket de los consumos realizados.
+     * @param fecha Dia en que se cierra la mesa.
+     * @param horaCierre Hora en que se cierra la mesa.
+     * @return El ticket, todavia sin numero.
+     */
+    public synchronized Ticket cerrar(LocalDate fecha, LocalTime horaCierre) {
+        Ticket ticket = getTicket(fecha, horaCierre);
 
         consumos.clear();
+        reiniciarTotales();
         horaApertura = null;
-        return ticket.toString();
+        avisarReinicio();
+        return ticket;
     }
 
     /**
@@ -87,10 +117,12 @@ public class Mesa {
      * Si la mesa seleccionada esta desocupada, la abre.
      * @param hora Hora de apertura (con minutos)
      */
-    public void abrir(LocalTime hora) {
+    public synchronized void abrir(LocalTime hora) {
         if (!estaOcupada()) {
             this.horaApertura = hora;
             this.consumos.clear();
+            reiniciarTotales();
+            avisarReinicio();
         }
     }
 
@@ -98,11 +130,67 @@ public class Mesa {
      * Se le suman los consumos que se realizan en la mesa.
      * @param consumo
      */
-    public void agregarConsumo(Consumo consumo) { if (estaOcupada()) { this.consumos.add(consumo); } }
+    public synchronized void agregarConsumo(Consumo consumo) {
+        if (estaOcupada()) {
+            this.consumos.put(consumo.getId(), consumo);
+            sumar(consumo, 1);
+            for (MesaListener listener : listeners) {
+                listener.consumoAgregado(this, consumo);
+            }
+        }
+    }
+
+    private void avisarReinicio() {
+        for (MesaListener listener : listeners) {
+            listener.consumosReiniciados(this);
+        }
+    }
+
+    /**
+     * Registra un oyente de los consumos y devuelve los consumos actuales, en un solo paso: los
+     * avisos que reciba el oyente son todos de cambios posteriores a esa copia.
+     * @param listener
+     * @return Copia de los consumos al momento de registrarse.
+     */
+    public synchronized List<Consumo> addMesaListener(MesaListener listener) {
+        listeners.add(listener);
+        return getConsumos();
+    }
+
+    /**
+     * Quita un oyente de los consumos.
+     * @param listener
+     */
+    public void removeMesaListener(MesaListener listener) { listeners.remove(listener); }
+
+    /**
+     * Devuelve una copia de los consumos realizados en la mesa.
+     * @return
+     */
+    public synchronized List<Consumo> getConsumos() { return Collections.unmodifiableList(new ArrayList<>(consumos.values())); }
+
+    /**
+     * Devuelve el total acumulado de los consumos de la mesa, en centavos.
+     * @return
+     */
+    public long getTotal() { return total; }
+
+    /**
+     * Devuelve la cantidad de unidades consumidas en la mesa, sumando todos los consumos.
+     * @return
+     */
+    public int getCantidadItems() { return cantidadItems; }
+
+    /**
+     * Devuelve cuantas unidades de un articulo se consumieron en la mesa.
+     * @param codigo Codigo del articulo.
+     * @return
+     */
+    public synchronized int getCantidadArticulo(String codigo) { return cantidadesPorArticulo.getOrDefault(codigo, 0); }
 
     /**
-     * Devuelve todos los consumos realizados en la mesa.
+     * Devuelve una copia de las unidades consumidas por codigo de articulo.
      * @return
      */
-    public List<Consumo> getConsumos() { return Collections.unmodifiableList(consumos); }
-}
\ No newline at end of file
+    public synchronized Map<String, Integer> getCantidadesPorArticulo() { return Collections.unmodifiableMap(new HashMap<>(cantidadesPorArticulo)); }
+}
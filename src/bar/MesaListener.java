@@ -0,0 +1,28 @@
+package bar;
+
+/**
+ * Avisos de los cambios en los consumos de una mesa. Se llaman en el hilo que hizo el cambio y
+ * con el lock de la mesa tomado, asi llegan en el mismo orden en que se hicieron; quien necesite
+ * trabajar en otro hilo debe pasarlos, por ejemplo con {@code SwingUtilities.invokeLater}.
+ */
+public interface MesaListener {
+    /**
+     * Se agrego un consumo al final de la lista.
+     * @param mesa
+     * @param consumo
+     */
+    void consumoAgregado(Mesa mesa, Consumo consumo);
+
+    /**
+     * Se quito un consumo de la lista.
+     * @param mesa
+     * @param consumo El consumo quitado; se identifica por {@link Consumo#getId()}.
+     */
+    void consumoRemovido(Mesa mesa, Consumo consumo);
+
+    /**
+     * Se vacio la lista de consumos, al abrir o cerrar la mesa.
+     * @param mesa
+     */
+    void consumosReiniciados(Mesa mesa);
+}
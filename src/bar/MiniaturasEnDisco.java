@@ -0,0 +1,227 @@
+package bar;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Guarda en disco las miniaturas de las imagenes de los productos, para no tener que decodificar
+ * y escalar las imagenes originales en cada arranque.
+ * <p>
+ * Cada miniatura se guarda como PNG con el nombre {@code <hash>_<tamaño>.png}, donde el hash es
+ * el SHA-1 del contenido de la imagen original. Un indice (indice.txt) guarda por cada ruta la
+ * fecha de modificacion, el tamaño y el hash del archivo original: mientras la fecha y el tamaño
+ * coincidan se usa la miniatura sin leer el original. Si el original cambio se vuelve a calcular
+ * el hash, y solo se genera una miniatura nueva si el contenido es distinto.
+ * <p>
+ * El indice se escribe agregando lineas al final; al abrirlo, si tiene muchas lineas repetidas
+ * se reescribe y se borran las miniaturas que ya no usa ninguna ruta.
+ */
+public class MiniaturasEnDisco {
+    private static final String INDICE = "indice.txt";
+
+    private final Path directorio;
+    private final int tamano;
+    /** Ruta de la imagen original -> datos con los que se genero su miniatura. */
+    private final Map<String, Entrada> indice = new HashMap<>();
+
+    /**
+     * @param directorio Directorio de las miniaturas; se crea si no existe.
+     * @param tamano Ancho y alto de las miniaturas, en pixeles.
+     */
+    public MiniaturasEnDisco(String directorio, int tamano) {
+        this.directorio = Paths.get(directorio);
+        this.tamano = tamano;
+        try {
+            Files.createDirectories(this.directorio);
+            int lineas = leerIndice();
+            if (lineas > 2 * indice.size() + 16) {
+                compactarIndice();
+            }
+        } catch (IOException e) {
+            System.err.println("Error al abrir el cache de miniaturas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Devuelve la miniatura de una imagen, generandola y guardandola si hace falta.
+     * @param origen Archivo de la imagen original.
+     * @return La miniatura, o null si el archivo no es una imagen.
+     * @throws IOException Si no se pudo leer la imagen original.
+     */
+    public BufferedImage obtener(File origen) throws IOException {
+        String ruta = origen.getPath();
+        long modificado = origen.lastModified();
+        long largo = origen.length();
+
+        Entrada entrada;
+        synchronized (this) {
+            entrada = indice.get(ruta);
+        }
+        if (entrada != null && entrada.modificado == modificado && entrada.largo == largo) {
+            BufferedImage guardada = leerMiniatura(entrada.hash);
+            if (guardada != null) {
+                return guardada;
+            }
+        }
+
+        byte[] contenido = Files.readAllBytes(origen.toPath());
+        String hash = hash(contenido);
+        BufferedImage miniatura = leerMiniatura(hash); // Puede ser el mismo contenido con otra fecha
+        if (miniatura == null) {
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(contenido));
+            if (original == null) {
+                return null;
+            }
+            miniatura = CacheImagenes.escalar(original, tamano, tamano);
+            guardarMiniatura(hash, miniatura);
+        }
+        registrar(ruta, new Entrada(modificado, largo, hash));
+        return miniatura;
+    }
+
+    private BufferedImage leerMiniatura(String hash) {
+        Path archivo = directorio.resolve(nombreMiniatura(hash));
+        if (!Files.exists(archivo)) {
+            return null;
+        }
+        try {
+            return ImageIO.read(archivo.toFile());
+        } catch (IOException e) {
+            return null; // Se vuelve a generar
+        }
+    }
+
+    private void guardarMiniatura(String hash, BufferedImage miniatura) {
+        try {
+            // Temporal propio de este hilo, asi dos hilos con la misma imagen no se pisan
+            Path temporal = Files.createTempFile(directorio, hash, ".tmp");
+            ImageIO.write(miniatura, "png", temporal.toFile());
+            Files.move(temporal, directorio.resolve(nombreMiniatura(hash)), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error al guardar la miniatura: " + e.getMessage());
+        }
+    }
+
+    private synchronized void registrar(String ruta, Entrada entrada) {
+        if (entrada.equals(indice.put(ruta, entrada))) {
+            return;
+        }
+        try (PrintWriter pw = new PrintWriter(new FileWriter(directorio.resolve(INDICE).toFile(), true))) {
+            pw.println(entrada.modificado + "," + entrada.largo + "," + entrada.hash + "," + ruta);
+        } catch (IOException e) {
+            System.err.println("Error al guardar el indice de miniaturas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lee el indice; si una ruta aparece varias veces vale la ultima linea.
+     * @return Cantidad de lineas leidas.
+     */
+    private int leerIndice() throws IOException {
+        Path archivo = directorio.resolve(INDICE);
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+        int lineas = 0;
+        try (BufferedReader br = Files.newBufferedReader(archivo)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lineas++;
+                String[] data = line.split(",", 4);
+                if (data.length == 4) {
+                    try {
+                        indice.put(data[3], new Entrada(Long.parseLong(data[0]), Long.parseLong(data[1]), data[2]));
+                    } catch (NumberFormatException e) {
+                        // Linea cortada por un cierre a mitad de escritura
+                    }
+                }
+            }
+        }
+        return lineas;
+    }
+
+    /**
+     * Reescribe el indice con una linea por ruta y borra las miniaturas que no se usan.
+     */
+    private void compactarIndice() throws IOException {
+        Path temporal = directorio.resolve(INDICE + ".tmp");
+        Set<String> usadas = new HashSet<>();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(temporal.toFile()))) {
+            for (Map.Entry<String, Entrada> entry : indice.entrySet()) {
+                Entrada entrada = entry.getValue();
+                pw.println(entrada.modificado + "," + entrada.largo + "," + entrada.hash + "," + entry.getKey());
+                usadas.add(nombreMiniatura(entrada.hash));
+            }
+        }
+        Files.move(temporal, directorio.resolve(INDICE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (DirectoryStream<Path> miniaturas = Files.newDirectoryStream(directorio, "*_" + tamano + ".png")) {
+            for (Path miniatura : miniaturas) {
+                if (!usadas.contains(miniatura.getFileName().toString())) {
+                    Files.deleteIfExists(miniatura);
+                }
+            }
+        }
+    }
+
+    private String nombreMiniatura(String hash) {
+        return hash + "_" + tamano + ".png";
+    }
+
+    private static String hash(byte[] contenido) {
+        try {
+            StringBuilder sb = new StringBuilder(40);
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(contenido)) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-1 esta en todas las JVM
+        }
+    }
+
+    /**
+     * Datos del archivo original con los que se genero una miniatura.
+     */
+    private static class Entrada {
+        final long modificado;
+        final long largo;
+        final String hash;
+
+        Entrada(long modificado, long largo, String hash) {
+            this.modificado = modificado;
+            this.largo = largo;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entrada)) {
+                return false;
+            }
+            Entrada otra = (Entrada) o;
+            return modificado == otra.modificado && largo == otra.largo && hash.equals(otra.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash.hashCode();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package bar;
+
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Modelo de la grilla de productos: todos los articulos del catalogo y, de esos, los que pasan
+ * el filtro del buscador. La grilla solo pide los articulos de las celdas que se ven.
+ */
+public class ModeloProductos extends AbstractListModel<Articulo> {
+    private final List<Articulo> todos = new ArrayList<>();
+    private final Map<String, Integer> posiciones = new HashMap<>();
+    private List<Articulo> visibles = new ArrayList<>();
+    private Set<String> filtro;
+
+    /**
+     * Reemplaza todos los articulos.
+     * @param articulos Articulos en el orden en que se muestran.
+     */
+    public void setArticulos(Collection<Articulo> articulos) {
+        todos.clear();
+        posiciones.clear();
+        for (Articulo art : articulos) {
+            posiciones.put(art.getCodigo(), todos.size());
+            todos.add(art);
+        }
+        refiltrar();
+    }
+
+    /**
+     * Actualiza solo los articulos indicados: los modificados quedan en su lugar, los nuevos se
+     * agregan al final y los que ya no existen se quitan.
+     * @param codigos Codigos de los articulos que cambiaron.
+     * @param buscar Devuelve el articulo actual de un codigo, o null si se elimino.
+     */
+    public void actualizar(Set<String> codigos, Function<String, Articulo> buscar) {
+        boolean eliminados = false;
+        for (String codigo : codigos) {
+            Articulo art = buscar.apply(codigo);
+            Integer posicion = posiciones.get(codigo);
+            if (art == null) {
+                if (posicion != null) {
+                    todos.set(posicion, null);
+                    posiciones.remove(codigo);
+                    eliminados = true;
+                }
+            } else if (posicion != null) {
+                todos.set(posicion, art);
+            } else {
+                posiciones.put(codigo, todos.size());
+                todos.add(art);
+            }
+        }
+        if (eliminados) {
+            List<Articulo> restantes = new ArrayList<>(todos);
+            restantes.removeIf(art -> art == null);
+            setArticulos(restantes);
+        } else {
+            refiltrar();
+        }
+    }
+
+    /**
+     * Deja visibles solo los articulos con esos codigos.
+     * @param codigos Codigos a mostrar, o null para mostrar todos.
+     */
+    public void filtrar(Set<String> codigos) {
+        filtro = codigos;
+        refiltrar();
+    }
+
+    private void refiltrar() {
+        int anterior = visibles.size();
+        if (filtro == null) {
+            visibles = new ArrayList<>(todos);
+        } else {
+            visibles = new ArrayList<>(Math.min(filtro.size(), todos.size()));
+            for (Articulo art : todos) {
+                if (filtro.contains(art.getCodigo())) {
+                    visibles.add(art);
+                }
+            }
+        }
+        // Un solo aviso para todo el cambio, en lugar de uno por articulo
+        if (anterior > visibles.size()) {
+            fireIntervalRemoved(this, visibles.size(), anterior - 1);
+        } else if (anterior < visibles.size()) {
+            fireIntervalAdded(this, anterior, visibles.size() - 1);
+        }
+        if (!visibles.isEmpty()) {
+            fireContentsChanged(this, 0, visibles.size() - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return visibles.size();
+    }
+
+    @Override
+    public Articulo getElementAt(int index) {
+        return visibles.get(index);
+    }
+}
@@ -0,0 +1,230 @@
+package bar;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Guarda los cambios del catalogo en un hilo propio para no frenar la interfaz.
+ * <p>
+ * Cada cambio solo marca el articulo como pendiente. Pasados {@link #DEMORA_MS} ms se escriben
+ * todos los pendientes juntos en el journal; si un mismo articulo cambio varias veces en ese
+ * lapso, solo se escribe su ultimo estado. Cuando el journal crece demasiado se reescribe
+ * productos.csv (archivo temporal + rename) y su copia binaria, siempre en el mismo hilo.
+ */
+public class PersistidorCatalogo {
+    /** Tiempo que se espera para juntar una rafaga de cambios en una sola escritura. */
+    static final long DEMORA_MS = 200;
+
+    static final String ENCABEZADO_PRODUCTOS = "codigo,nombre,precio_diurno,precio_nocturno,precio_happy_hour,imagen,especificaciones";
+
+    private final String archivoCsv;
+    private final String archivoSnapshot;
+    private final JournalCatalogo journal;
+    private final Supplier<Collection<Articulo>> catalogo;
+    private final ScheduledExecutorService escritor;
+
+    /** Ultimo estado pendiente de cada articulo modificado; null si fue eliminado. */
+    private final Map<String, Articulo> pendientes = new LinkedHashMap<>();
+    private boolean programado = false;
+    private VigilanteCatalogo vigilante;
+
+    /**
+     * @param archivoCsv Ruta del CSV base.
+     * @param archivoSnapshot Ruta de la copia binaria del CSV base.
+     * @param journal Journal de cambios del catalogo.
+     * @param catalogo Devuelve el catalogo actual; se recorre desde el hilo escritor.
+     */
+    public PersistidorCatalogo(String archivoCsv, String archivoSnapshot, JournalCatalogo journal, Supplier<Collection<Articulo>> catalogo) {
+        this.archivoCsv = archivoCsv;
+        this.archivoSnapshot = archivoSnapshot;
+        this.journal = journal;
+        this.catalogo = catalogo;
+        this.escritor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "persistidor-catalogo");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Asigna el vigilante del CSV, al que se le avisa antes de reemplazar el archivo para que no
+     * tome la escritura como una edicion externa.
+     * @param vigilante
+     */
+    public void setVigilante(VigilanteCatalogo vigilante) {
+        this.vigilante = vigilante;
+    }
+
+    /**
+     * Marca un articulo nuevo o modificado para guardarlo.
+     * @param articulo El articulo con sus datos actuales.
+     */
+    public void guardar(Articulo articulo) {
+        marcar(articulo.getCodigo(), articulo);
+    }
+
+    /**
+     * Marca un articulo como eliminado.
+     * @param codigo Codigo del articulo.
+     */
+    public void eliminar(String codigo) {
+        marcar(codigo, null);
+    }
+
+    private synchronized void marcar(String codigo, Articulo articulo) {
+        pendientes.remove(codigo); // Que quede al final, en el orden del ultimo cambio
+        pendientes.put(codigo, articulo);
+        if (!programado) {
+            programado = true;
+            escritor.schedule(this::escribirPendientes, DEMORA_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Ejecuta una tarea en el hilo escritor, asi las escrituras del catalogo nunca se pisan.
+     * @param tarea Tarea a ejecutar.
+     */
+    public void enSegundoPlano(Runnable tarea) {
+        escritor.submit(tarea);
+    }
+
+    /**
+     * Reescribe el CSV base con el catalogo actual en el hilo escritor, aunque el journal sea
+     * chico. Se usa despues de aplicar una edicion externa del CSV: el journal se escribio sobre
+     * la version anterior y al reiniciar se descartaria, con los cambios hechos desde el programa.
+     */
+    public void compactarEnSegundoPlano() {
+        escritor.submit(() -> {
+            escribirPendientes();
+            compactar();
+        });
+    }
+
+    /**
+     * Escribe ya los cambios pendientes y espera a que terminen todas las escrituras en curso.
+     * Se debe llamar antes de cerrar el programa.
+     */
+    public void flush() {
+        try {
+            escritor.submit(this::escribirPendientes).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error al guardar el catalogo: " + e.getCause());
+        }
+    }
+
+    private void escribirPendientes() {
+        List<String> registros = new ArrayList<>();
+        synchronized (this) {
+            programado = false;
+            for (Map.Entry<String, Articulo> entry : pendientes.entrySet()) {
+                registros.add(entry.getValue() != null
+                        ? JournalCatalogo.registroAlta(formatearLinea(entry.getValue()))
+                        : JournalCatalogo.registroBaja(entry.getKey()));
+            }
+            pendientes.clear();
+        }
+        if (registros.isEmpty()) {
+            return;
+        }
+        journal.escribir(registros);
+
+        if (journal.necesitaCompactar()) {
+            compactar();
+        }
+    }
+
+    /**
+     * Reescribe el CSV base con el catalogo actual y vacia el journal. Los cambios que se hagan
+     * mientras tanto quedan pendientes y van al journal nuevo; si ademas aparecen en la copia,
+     * volver a aplicarlos al arrancar da el mismo resultado.
+     */
+    private void compactar() {
+        try {
+            journal.rotar();
+        } catch (IOException e) {
+            System.err.println("Error al rotar el journal del catalogo: " + e.getMessage());
+            return;
+        }
+        List<Articulo> copia = new ArrayList<>(catalogo.get());
+        if (guardarProductos(copia)) {
+            SnapshotCatalogo.escribir(archivoSnapshot, archivoCsv, copia);
+            journal.descartarRotado();
+        }
+    }
+
+    /**
+     * Guarda todos los productos en el archivo CSV. Se escribe primero un archivo temporal y
+     * despues se reemplaza el original, asi un corte a mitad de camino no deja el CSV incompleto.
+     * @param productos Copia de los articulos a guardar.
+     * @return true si el archivo quedo escrito.
+     */
+    private boolean guardarProductos(Collection<Articulo> productos) {
+        Path temporal = Paths.get(archivoCsv + ".tmp");
+        Map<String, String> filas = new HashMap<>();
+
+        try (PrintWriter pw = new PrintWriter(new FileWriter(temporal.toFile()))) {
+            pw.println(ENCABEZADO_PRODUCTOS);
+            for (Articulo art : productos) {
+                String fila = formatearLinea(art);
+                filas.put(art.getCodigo(), fila);
+                pw.println(fila);
+            }
+            if (pw.checkError()) {
+                throw new IOException("no se pudo escribir " + temporal);
+            }
+        } catch (IOException e) {
+            System.err.println("Error al guardar productos: " + e.getMessage());
+            return false;
+        }
+
+        if (vigilante != null) {
+            vigilante.escrituraPropia(filas);
+        }
+        try {
+            Files.move(temporal, Paths.get(archivoCsv), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar productos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Devuelve la fila CSV de un articulo, en el formato que lee BarManager.
+     * @param art Articulo a convertir.
+     * @return
+     */
+    private String formatearLinea(Articulo art) {
+        String especificacionesStr = art.getEspecificaciones().stream()
+                .map(spec -> spec.getNombre() + ":" + spec.getTipo().name() + ":" + Dinero.texto(spec.getPrecioPorUnidad()))
+                .collect(Collectors.joining(";"));
+
+        return String.format("%s,%s,%s,%s,%s,%s,%s",
+                art.getCodigo(),
+                art.getDescripcion(),
+                Dinero.texto(art.getPrecioDiurno()),
+                Dinero.texto(art.getPrecioNocturno()),
+                Dinero.texto(art.getPrecioHappyHour()),
+                art.getImagenPath(),
+                especificacionesStr);
+    }
+}
@@ -4,19 +4,33 @@ import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Componente visual que representa un unico producto del bar.
+ * <p>
+ * La grilla de productos usa un solo panel para dibujar todas las celdas: {@link #mostrar}
+ * lo prepara para cada articulo antes de dibujarlo.
  */
 public class ProductoPanel extends JPanel {
     private Articulo articulo;
+    private JLabel imageLabel;
+    private JLabel descLabel;
     private JLabel priceLabel;
-    private static final int IMAGE_SIZE = 100;
+    static final int IMAGE_SIZE = 100;
+    /** Miniaturas compartidas por todos los paneles. */
+    private static final CacheImagenes IMAGENES = new CacheImagenes(IMAGE_SIZE, 512, "miniaturas");
+    private static final Image NO_IMAGE = createNoImagePlaceholder(IMAGE_SIZE, IMAGE_SIZE);
+    /** Se reutiliza para no crear un ImageIcon cada vez que se dibuja una celda. */
+    private final Miniatura miniatura = new Miniatura();
+    /** Imagenes pedidas que todavia no llegaron, para pedir cada una una sola vez. Solo se usa en el hilo de Swing. */
+    private final Set<String> pedidas = new HashSet<>();
 
-    public ProductoPanel(Articulo articulo) {
-        this.articulo = articulo;
+    /**
+     * Crea un panel vacio, para usarlo con {@link #mostrar}.
+     */
+    public ProductoPanel() {
         setLayout(new BorderLayout(5, 5));
         setPreferredSize(new Dimension(150, 180));
         setBorder(createProductBorder());
@@ -24,7 +38,7 @@ public class ProductoPanel extends JPanel {
 
         JPanel imagePanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         imagePanel.setBackground(Color.WHITE);
-        JLabel imageLabel = loadImage(articulo.getImagenPath());
+        imageLabel = new JLabel(miniatura);
         imagePanel.add(imageLabel);
         add(imagePanel, BorderLayout.CENTER);
 
@@ -33,7 +47,7 @@ public class ProductoPanel extends JPanel {
         textPanel.setBackground(Color.WHITE);
         textPanel.setBorder(BorderFactory.createEmptyBorder(0, 5, 5, 5));
 
-        JLabel descLabel = new JLabel(articulo.getDescripcion(), SwingConstants.CENTER);
+        descLabel = new JLabel("", SwingConstants.CENTER);
         descLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
         descLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         textPanel.add(descLabel);
@@ -49,42 +63,46 @@ public class ProductoPanel extends JPanel {
     }
 
     /**
-     * Actualiza el precio mostrado en el panel.
-     * @param currentHour La hora actual para determinar el precio (diurno/nocturno).
-     * @param isHappyHour true si la Hora feliz está activo.
+     * Prepara el panel para mostrar un articulo.
+     * @param articulo Articulo a mostrar.
+     * @param franja La franja de precios que rige ahora.
+     * @param alCargarImagen Se llama en el hilo de Swing si la imagen todavia no estaba cargada y termina de cargarse.
      */
-    public void updatePrice(int currentHour, boolean isHappyHour) {
-        double price;
-        if (isHappyHour) {
-            price = articulo.getPrecioHappyHour();
-        } else {
-            price = articulo.getPrecioPorHora(currentHour);
-        }
-        priceLabel.setText(String.format("$%.2f", price));
+    public void mostrar(Articulo articulo, FranjaHoraria franja, Runnable alCargarImagen) {
+        this.articulo = articulo;
+        descLabel.setText(articulo.getDescripcion());
+        loadImage(articulo.getImagenPath(), alCargarImagen);
+        updatePrice(franja);
     }
 
-    private JLabel loadImage(String imagePath) {
-        ImageIcon icon = null;
-        try {
-            File imgFile = new File(imagePath);
-            if (imgFile.exists()) {
-                icon = new ImageIcon(imgFile.getAbsolutePath());
-            } else {
-                icon = new ImageIcon(getClass().getClassLoader().getResource(imagePath));
-            }
-        } catch (Exception e) {
-            System.err.println("No se pudo cargar la imagen: " + imagePath);
-        }
+    /**
+     * Actualiza el precio mostrado en el panel.
+     * @param franja La franja de precios que rige ahora.
+     */
+    public void updatePrice(FranjaHoraria franja) {
+        priceLabel.setText(Dinero.mostrar(articulo.getPrecio(franja)));
+    }
 
-        if (icon != null && icon.getIconWidth() > 0) {
-            Image scaledImg = icon.getImage().getScaledInstance(IMAGE_SIZE, IMAGE_SIZE, Image.SCALE_SMOOTH);
-            return new JLabel(new ImageIcon(scaledImg));
-        } else {
-            return new JLabel(new ImageIcon(createNoImagePlaceholder(IMAGE_SIZE, IMAGE_SIZE)));
+    /**
+     * Muestra la miniatura si ya esta cargada; si no, muestra el placeholder y pide la imagen en
+     * segundo plano. Mientras carga la celda se vuelve a dibujar, y no hace falta pedirla de nuevo.
+     */
+    private void loadImage(String imagePath, Runnable alCargar) {
+        Image cargada = IMAGENES.obtener(imagePath);
+        miniatura.imagen = cargada != null ? cargada : NO_IMAGE;
+        if (cargada == null && pedidas.add(imagePath)) {
+            IMAGENES.cargar(imagePath, img -> {
+                pedidas.remove(imagePath);
+                if (articulo != null && imagePath.equals(articulo.getImagenPath())) {
+                    miniatura.imagen = img;
+                    imageLabel.repaint();
+                }
+                alCargar.run();
+            });
         }
     }
 
-    private Image createNoImagePlaceholder(int width, int height) {
+    private static Image createNoImagePlaceholder(int width, int height) {
         BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2d = img.createGraphics();
         g2d.setColor(Color.LIGHT_GRAY);
@@ -114,4 +132,26 @@ public class ProductoPanel extends JPanel {
     public Articulo getArticulo() {
         return articulo;
     }
-}
\ No newline at end of file
+
+    /**
+     * Icono de tamaño fijo que dibuja la imagen que tenga asignada.
+     */
+    private static class Miniatura implements Icon {
+        Image imagen = NO_IMAGE;
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.drawImage(imagen, x, y, IMAGE_SIZE, IMAGE_SIZE, c);
+        }
+
+        @Override
+        public int getIconWidth() {
+            return IMAGE_SIZE;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return IMAGE_SIZE;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package bar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Registro binario de solo-agregado con las operaciones hechas sobre las mesas abiertas, para no
+ * perderlas si el programa se corta en medio del servicio.
+ * <p>
+ * Cada operacion (abrir, agregar consumo, remover consumo, cerrar) se guarda como un registro
+ * {@code largo, crc32, datos}; los datos empiezan con el tipo, un numero de secuencia global y el
+ * numero de mesa. Cada consumo se guarda con la descripcion del articulo y el nombre, tipo y
+ * precio de cada opcion elegida, asi al reproducirlo se arma igual que estaba aunque mientras tanto
+ * el articulo haya cambiado o se haya borrado del catalogo. Quien opera solo arma los bytes y los
+ * encola: un hilo propio junta todos los registros que haya en la cola, los escribe de una sola
+ * vez y hace un unico fsync por tanda. Si una tanda no se puede escribir, el hilo la reintenta en
+ * un segmento nuevo, y mientras tanto {@link #flush()} lanza el error.
+ * <p>
+ * El registro se divide en segmentos: mesas.wal.1, mesas.wal.2, etc. Cada vez que se guarda una
+ * copia completa de las mesas ({@link SnapshotMesas}) se pasa a un segmento nuevo, y cuando la
+ * copia queda escrita se borran los segmentos anteriores, que ya estan todos incluidos en ella.
+ * <p>
+ * Al arrancar se reproducen los registros de todos los segmentos en orden; un registro cortado o
+ * con el crc mal (el ultimo, si se corto la luz a mitad de escritura) termina la lectura de su
+ * segmento.
+ */
+public class RegistroMesas {
+    private static final byte ABRIR = 1;
+    private static final byte CONSUMO = 2;
+    private static final byte REMOVER = 3;
+    private static final byte CERRAR = 4;
+
+    /** Tamaño maximo de un registro; uno mas grande solo puede ser basura. */
+    private static final int LARGO_MAXIMO = 64 * 1024;
+    /** Se encola para que el hilo escritor pase al segmento siguiente. */
+    private static final byte[] ROTAR = new byte[0];
+    /** Espera antes de reintentar una tanda que no se pudo escribir. */
+    private static final long ESPERA_REINTENTO_MS = 1000;
+
+    private final Path archivo;
+    private final BlockingQueue<byte[]> cola = new LinkedBlockingQueue<>();
+    /** Segmento que tiene abierto el hilo escritor, o null si hay que abrir uno; solo lo usa ese hilo. */
+    private FileChannel canal;
+    private Thread escritor;
+
+    // Protegidos por this
+    private long secuencia;
+    private long encolados;
+    private long escritos;
+    /** Ultimo segmento que abrio el escritor. */
+    private int segmento;
+    /** Error de la ultima tanda, si no se pudo escribir; se reintenta hasta que se escriba. */
+    private IOException error;
+
+    /**
+     * Recibe las operaciones guardadas al reproducir el registro. Cada una trae su numero de
+     * secuencia, para saltear las que ya estan en la copia de las mesas.
+     */
+    public interface Reproductor {
+        void abrir(long seq, int mesa, LocalTime hora);
+
+        void agregar(long seq, int mesa, Consumo consumo);
+
+        void remover(long seq, int mesa, long consumoId);
+
+        void cerrar(long seq, int mesa);
+    }
+
+    /**
+     * @param archivo Ruta del registro, por ejemplo: mesas.wal
+     */
+    public RegistroMesas(String archivo) {
+        this.archivo = Paths.get(archivo);
+    }
+
+    /**
+     * Aplica las operaciones guardadas en todos los segmentos, en el orden en que se hicieron. Se
+     * llama antes de {@link #iniciar(long)}.
+     * @param reproductor
+     * @return Cantidad de operaciones reproducidas.
+     */
+    public int reproducir(Reproductor reproductor) {
+        int operaciones = 0;
+        for (Path ruta : segmentos().values()) {
+            operaciones += reproducir(ruta, reproductor);
+        }
+        return operaciones;
+    }
+
+    private int reproducir(Path ruta, Reproductor reproductor) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(ruta));
+        } catch (IOException e) {
+            System.err.println("Error al leer el registro de mesas: " + e.getMessage());
+            return 0;
+        }
+        int operaciones = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int largo = buffer.getInt();
+            int esperado = buffer.getInt();
+            if (largo <= 0 || largo > LARGO_MAXIMO || largo > buffer.remaining()) {
+                break;
+            }
+            byte[] datos = new byte[largo];
+            buffer.get(datos);
+            crc.reset();
+            crc.update(datos);
+            if ((int) crc.getValue() != esperado) {
+                break;
+            }
+            try {
+                aplicar(datos, reproductor);
+                operaciones++;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Registro de mesas ignorado: " + e);
+            }
+        }
+        if (buffer.hasRemaining()) {
+            System.err.println("Registro de mesas cortado, se descartan " + buffer.remaining() + " bytes del final de " + ruta);
+        }
+        return operaciones;
+    }
+
+    private void aplicar(byte[] datos, Reproductor reproductor) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(datos));
+        byte tipo = in.readByte();
+        long seq = in.readLong();
+        int mesa = in.readInt();
+        synchronized (this) {
+            secuencia = Math.max(secuencia, seq);
+        }
+        switch (tipo) {
+            case ABRIR:
+                reproductor.abrir(seq, mesa, LocalTime.ofNanoOfDay(in.readLong()));
+                break;
+            case CONSUMO:
+                reproductor.agregar(seq, mesa, leerConsumo(in));
+                break;
+            case REMOVER:
+                reproductor.remover(seq, mesa, in.readLong());
+                break;
+            case CERRAR:
+                reproductor.cerrar(seq, mesa);
+                break;
+            default:
+                throw new IOException("tipo desconocido " + tipo);
+        }
+    }
+
+    /**
+     * Abre un segmento nuevo y empieza a aceptar operaciones.
+     * @param ultimaSecuencia Secuencia mas alta ya usada fuera de los segmentos, por ejemplo en
+     *                        la copia de las mesas; las operaciones nuevas se numeran despues.
+     */
+    public void iniciar(long ultimaSecuencia) {
+        TreeMap<Integer, Path> existentes = segmentos();
+        int primero = existentes.isEmpty() ? 1 : existentes.lastKey() + 1;
+        FileChannel abierto;
+        try {
+            abierto = abrirSegmento(primero);
+        } catch (IOException e) {
+            System.err.println("Error al abrir el registro de mesas: " + e.getMessage());
+            return; // Sin registro el bar sigue funcionando, como antes
+        }
+        Thread hilo = new Thread(this::escribirTandas, "registro-mesas");
+        hilo.setDaemon(true);
+        synchronized (this) {
+            secuencia = Math.max(secuencia, ultimaSecuencia);
+            segmento = primero;
+            canal = abierto;
+            escritor = hilo;
+        }
+        hilo.start();
+    }
+
+    /**
+     * Registra la apertura de una mesa. Las operaciones de una mesa se registran con su lock,
+     * asi quedan en el mismo orden en que se hicieron.
+     * @param mesa
+     * @param hora
+     * @return Secuencia de la operacion.
+     */
+    public long registrarApertura(int mesa, LocalTime hora) {
+        return encolar(apertura(mesa, hora));
+    }
+
+    /**
+     * Registra un consumo agregado al final de una mesa.
+     * @param mesa
+     * @param consumo
+     * @return Secuencia de la operacion.
+     */
+    public long registrarConsumo(int mesa, Consumo consumo) {
+        return encolar(consumo(mesa, consumo));
+    }
+
+    /**
+     * Registra un consumo removido de una mesa.
+     * @param mesa
+     * @param consumoId Id del consumo removido.
+     * @return Secuencia de la operacion.
+     */
+    public long registrarRemocion(int mesa, long consumoId) {
+        return encolar(nuevoRegistro(REMOVER, mesa, out -> out.writeLong(consumoId)));
+    }
+
+    /**
+     * Registra el cierre de una mesa.
+     * @param mesa
+     * @return Secuencia de la operacion.
+     */
+    public long registrarCierre(int mesa) {
+        return encolar(nuevoRegistro(CERRAR, mesa, out -> { }));
+    }
+
+    /**
+     * Devuelve la secuencia de la ultima operacion registrada.
+     * @return
+     */
+    public synchronized long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Pasa a un segmento nuevo. Las operaciones registradas despues de llamarlo van al segmento
+     * devuelto o a uno posterior.
+     * @return Numero del segmento nuevo, o -1 si el registro no esta abierto.
+     */
+    public synchronized int rotar() {
+        if (escritor == null) {
+            return -1;
+        }
+        cola.add(ROTAR);
+        encolados++;
+        // El escritor abre el siguiente con siguienteSegmento(), asi que va a ser este o uno mayor
+        return segmento + 1;
+    }
+
+    /**
+     * Borra los segmentos anteriores a uno, cuando ya hay una copia de las mesas que los incluye.
+     * @param hasta Segmento devuelto por {@link #rotar()}; se borran los anteriores.
+     */
+    public void borrarAnteriores(int hasta) {
+        try {
+            flush(); // Que el escritor ya haya cerrado los segmentos a borrar
+        } catch (IOException e) {
+            System.err.println("No se borran los segmentos anteriores del registro de mesas: " + e.getMessage());
+            return;
+        }
+        for (Map.Entry<Integer, Path> entry : segmentos().headMap(hasta).entrySet()) {
+            try {
+                Files.deleteIfExists(entry.getValue());
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar el segmento " + entry.getValue() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Espera a que todas las operaciones registradas hasta ahora esten escritas en disco.
+     * @throws IOException Si el escritor no pudo escribirlas; las sigue reintentando.
+     */
+    public void flush() throws IOException {
+        synchronized (this) {
+            long objetivo = encolados;
+            while (escritos < objetivo && escritor != null && escritor.isAlive()) {
+                if (error != null) {
+                    throw new IOException("El registro de mesas no se pudo escribir", error);
+                }
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized long encolar(byte[] registro) {
+        if (escritor == null) {
+            return 0; // No se pudo abrir el registro
+        }
+        // La secuencia se numera aca y no al armar los bytes, asi en el archivo queda en orden
+        cola.add(sellar(registro));
+        encolados++;
+        return secuencia;
+    }
+
+    /**
+     * Le pone al registro la siguiente secuencia, el largo y el crc. Se llama con el lock de this.
+     */
+    private byte[] sellar(byte[] registro) {
+        ByteBuffer buffer = ByteBuffer.wrap(registro);
+        buffer.putLong(9, ++secuencia);
+        CRC32 crc = new CRC32();
+        crc.update(registro, 8, registro.length - 8);
+        buffer.putInt(0, registro.length - 8);
+        buffer.putInt(4, (int) crc.getValue());
+        return registro;
+    }
+
+    private void escribirTandas() {
+        List<byte[]> tanda = new ArrayList<>();
+        while (true) {
+            if (tanda.isEmpty()) {
+                try {
+                    tanda.add(cola.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cola.drainTo(tanda); // Todo lo que llego mientras se escribia la tanda anterior
+            }
+            int hasta = tanda.indexOf(ROTAR);
+            if (hasta < 0) {
+                hasta = tanda.size();
+            }
+            try {
+                if (hasta > 0) {
+                    if (canal == null) {
+                        canal = abrirSegmento(siguienteSegmento());
+                    }
+                    escribir(canal, tanda.subList(0, hasta));
+                }
+                int hechos = hasta;
+                if (hasta < tanda.size()) {
+                    // Los registros que siguen van a un segmento nuevo, que se abre al escribirlos
+                    cerrarCanal();
+                    hechos++;
+                }
+                tanda.subList(0, hechos).clear();
+                synchronized (this) {
+                    escritos += hechos;
+                    error = null;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                // El segmento puede haber quedado con un registro a medias, que termina su lectura:
+                // se reintenta en uno nuevo. Si algun registro ya habia llegado al disco queda
+                // repetido, y al reproducir se saltea por la secuencia.
+                cerrarCanal();
+                synchronized (this) {
+                    if (error == null) {
+                        System.err.println("Error al escribir el registro de mesas, se reintenta: " + e.getMessage());
+                    }
+                    error = e;
+                    notifyAll();
+                }
+                try {
+                    Thread.sleep(ESPERA_REINTENTO_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void cerrarCanal() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("Error al cerrar un segmento del registro de mesas: " + e.getMessage());
+        }
+        canal = null;
+    }
+
+    private synchronized int siguienteSegmento() {
+        return ++segmento;
+    }
+
+    private FileChannel abrirSegmento(int numero) throws IOException {
+        return FileChannel.open(Paths.get(archivo + "." + numero), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Devuelve los segmentos que hay en disco, ordenados por numero.
+     */
+    private TreeMap<Integer, Path> segmentos() {
+        TreeMap<Integer, Path> segmentos = new TreeMap<>();
+        Path directorio = archivo.toAbsolutePath().getParent();
+        String prefijo = archivo.getFileName() + ".";
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, prefijo + "*")) {
+            for (Path ruta : archivos) {
+                try {
+                    segmentos.put(Integer.parseInt(ruta.getFileName().toString().substring(prefijo.length())), ruta);
+                } catch (NumberFormatException e) {
+                    // Otro archivo con el mismo prefijo
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al listar el registro de mesas: " + e.getMessage());
+        }
+        return segmentos;
+    }
+
+    private static void escribir(FileChannel destino, List<byte[]> registros) throws IOException {
+        if (registros.isEmpty()) {
+            return;
+        }
+        int total = 0;
+        for (byte[] registro : registros) {
+            total += registro.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] registro : registros) {
+            buffer.put(registro);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+        destino.force(false);
+    }
+
+    private static byte[] apertura(int mesa, LocalTime hora) {
+        return nuevoRegistro(ABRIR, mesa, out -> out.writeLong(hora.toNanoOfDay()));
+    }
+
+    private static byte[] consumo(int mesa, Consumo consumo) {
+        return nuevoRegistro(CONSUMO, mesa, out -> escribirConsumo(out, consumo));
+    }
+
+    /**
+     * Escribe un consumo con todo lo que hace falta para rearmarlo sin el catalogo:
+     * <pre>
+     * id:long codigo:UTF descripcion:UTF cantidad:int precioUnitarioBase:long hora:long
+     * opciones:short { nombre:UTF tipo:byte precioPorUnidad:long cantidad:int }
+     * </pre>
+     * Las opciones van en el orden del articulo, hasta la ultima elegida.
+     * @param out
+     * @param consumo
+     * @throws IOException
+     */
+    static void escribirConsumo(DataOutput out, Consumo consumo) throws IOException {
+        Articulo articulo = consumo.getArticulo();
+        out.writeLong(consumo.getId());
+        out.writeUTF(articulo.getCodigo());
+        out.writeUTF(articulo.getDescripcion());
+        out.writeInt(consumo.getCantidad());
+        out.writeLong(consumo.precioUnitarioBase);
+        out.writeLong(consumo.getHoraConsumo().toNanoOfDay());
+        int[] opciones = consumo.getOpciones();
+        out.writeShort(opciones.length);
+        for (int i = 0; i < opciones.length; i++) {
+            Especificacion spec = articulo.especificaciones.get(i);
+            out.writeUTF(spec.getNombre());
+            out.writeByte(spec.getTipo().ordinal());
+            out.writeLong(spec.getPrecioPorUnidad());
+            out.writeInt(opciones[i]);
+        }
+    }
+
+    /**
+     * Lee un consumo escrito con {@link #escribirConsumo}. El articulo del consumo se arma con los
+     * datos guardados, tal como estaba al pedirlo, y no es el del catalogo.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static Consumo leerConsumo(DataInput in) throws IOException {
+        long id = in.readLong();
+        String codigo = in.readUTF();
+        String descripcion = in.readUTF();
+        int cantidad = in.readInt();
+        long precio = in.readLong();
+        LocalTime hora = LocalTime.ofNanoOfDay(in.readLong());
+        int[] opciones = new int[in.readUnsignedShort()];
+        List<Especificacion> especificaciones = new ArrayList<>(opciones.length);
+        TipoEspecificacion[] tipos = TipoEspecificacion.values();
+        for (int i = 0; i < opciones.length; i++) {
+            especificaciones.add(Especificacion.obtener(in.readUTF(), tipos[in.readUnsignedByte()], in.readLong()));
+            opciones[i] = in.readInt();
+        }
+        Articulo articulo = new Articulo(codigo, descripcion, precio, precio, precio, "", especificaciones);
+        return new Consumo(id, articulo, cantidad, precio, opciones, hora);
+    }
+
+    /**
+     * Arma un registro con lugar para el largo y el crc al principio. La secuencia, el largo y el
+     * crc se completan al encolarlo, ver {@link #sellar(byte[])}.
+     */
+    private static byte[] nuevoRegistro(byte tipo, int mesa, Campos campos) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // Largo
+            out.writeInt(0); // Crc
+            out.writeByte(tipo);
+            out.writeLong(0); // Secuencia
+            out.writeInt(mesa);
+            campos.escribir(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // No pasa escribiendo en memoria
+        }
+    }
+
+    private interface Campos {
+        void escribir(DataOutputStream out) throws IOException;
+    }
+}
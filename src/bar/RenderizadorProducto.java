@@ -0,0 +1,59 @@
+package bar;
+
+import javax.swing.BorderFactory;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.ListCellRenderer;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+
+/**
+ * Dibuja cada celda de la grilla de productos con un unico ProductoPanel que se reutiliza, asi
+ * la cantidad de componentes no depende del tamaño del catalogo.
+ */
+public class RenderizadorProducto implements ListCellRenderer<Articulo> {
+    /** Separacion entre productos, la misma que tenia el FlowLayout de la grilla. */
+    static final int SEPARACION = 15;
+
+    private final ProductoPanel panel = new ProductoPanel();
+    private final JPanel celda = new JPanel(new BorderLayout()); // Agrega la separacion alrededor del panel
+    private FranjaHoraria franja = FranjaHoraria.DIURNO;
+
+    public RenderizadorProducto() {
+        int mitad = SEPARACION / 2;
+        celda.setBorder(BorderFactory.createEmptyBorder(mitad, mitad, SEPARACION - mitad, SEPARACION - mitad));
+        celda.setBackground(Color.WHITE);
+        celda.add(panel, BorderLayout.CENTER);
+    }
+
+    /**
+     * Cambia la franja con la que se muestran los precios. Despues hay que repintar la lista.
+     * @param franja
+     */
+    public void setFranja(FranjaHoraria franja) {
+        this.franja = franja;
+    }
+
+    /**
+     * Devuelve el ancho de cada celda, para fijarlo en la lista.
+     * @return
+     */
+    public int getAnchoCelda() {
+        return panel.getPreferredSize().width + SEPARACION;
+    }
+
+    /**
+     * Devuelve el alto de cada celda, para fijarlo en la lista.
+     * @return
+     */
+    public int getAltoCelda() {
+        return panel.getPreferredSize().height + SEPARACION;
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Articulo> list, Articulo value, int index, boolean isSelected, boolean cellHasFocus) {
+        panel.mostrar(value, franja, list::repaint);
+        return celda;
+    }
+}
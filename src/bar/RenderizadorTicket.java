@@ -0,0 +1,236 @@
+package bar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Escribe el texto de un ticket directamente en el destino, sin armar un String por linea.
+ * <p>
+ * El resultado es exactamente el mismo que daban los {@code String.format} de antes
+ * ({@code "%-20.20s %5d %10s"} por consumo y {@code "TOTAL: %26s"}), pero los anchos de las
+ * columnas y las lineas fijas se calculan una sola vez y los numeros se escriben digito a digito.
+ * El destino puede ser cualquier {@link Appendable} (un StringBuilder para la pantalla, un Writer
+ * para un archivo) o un {@link ByteBuffer} para mandar a una impresora.
+ * <p>
+ * El separador decimal y los digitos de las cantidades son los del idioma del sistema al crear el
+ * renderizador, igual que con {@code String.format}.
+ */
+public class RenderizadorTicket {
+    // Columnas de cada consumo: descripcion, cantidad y subtotal, separadas por un espacio
+    private static final int ANCHO_DESCRIPCION = 20;
+    private static final int ANCHO_CANTIDAD = 5;
+    private static final int ANCHO_SUBTOTAL = 10;
+    private static final int ANCHO_TOTAL = 26;
+
+    private static final String TITULO = "Ticket - Mesa ";
+    private static final String SEPARADOR = "----------------------------------------\n";
+    private static final String ENCABEZADO = columna("Producto", ANCHO_DESCRIPCION, false) + " "
+            + columna("Cant.", ANCHO_CANTIDAD, true) + " " + columna("Subtotal", ANCHO_SUBTOTAL, true) + "\n";
+    private static final String TOTAL = "TOTAL: ";
+    private static final String ESPACIOS = "                          "; // El ancho de la columna mas ancha
+
+    private final char separadorDecimal;
+    private final char cero;
+    /** Digitos de un numero, de atras para adelante; cada renderizador es de un solo hilo. */
+    private final char[] digitos = new char[20];
+
+    /**
+     * Crea un renderizador con el separador decimal y los digitos del idioma del sistema.
+     */
+    public RenderizadorTicket() {
+        DecimalFormatSymbols simbolos = DecimalFormatSymbols.getInstance();
+        this.separadorDecimal = simbolos.getDecimalSeparator();
+        this.cero = simbolos.getZeroDigit();
+    }
+
+    /**
+     * Devuelve el texto del ticket.
+     * @param ticket
+     * @return
+     */
+    public String texto(Ticket ticket) {
+        StringBuilder sb = new StringBuilder(SEPARADOR.length() * (ticket.lineas.size() + 7));
+        try {
+            escribir(ticket, sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Un StringBuilder no tira IOException
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe el ticket en un destino de texto.
+     * @param ticket
+     * @param destino Por ejemplo un StringBuilder o un Writer.
+     * @throws IOException Si el destino no se pudo escribir.
+     */
+    public void escribir(Ticket ticket, Appendable destino) throws IOException {
+        destino.append(TITULO);
+        entero(destino, ticket.mesa, 0, '0');
+        destino.append('\n');
+        destino.append(SEPARADOR);
+        destino.append(ENCABEZADO);
+        destino.append(SEPARADOR);
+
+        for (Ticket.Linea linea : ticket.lineas) {
+            descripcion(destino, linea.descripcion, linea.detalle);
+            destino.append(' ');
+            entero(destino, linea.cantidad, ANCHO_CANTIDAD, cero);
+            destino.append(' ');
+            importe(destino, linea.subtotal, ANCHO_SUBTOTAL);
+            destino.append('\n');
+        }
+
+        destino.append(SEPARADOR);
+        destino.append(TOTAL);
+        importe(destino, ticket.total, ANCHO_TOTAL);
+        destino.append('\n');
+        destino.append(SEPARADOR);
+    }
+
+    /**
+     * Escribe el ticket como bytes, un byte por caracter en ISO-8859-1 (el que usan las
+     * impresoras de tickets para los acentos y la ñ); los caracteres que no entran se cambian
+     * por '?', igual que {@code String.getBytes(StandardCharsets.ISO_8859_1)}.
+     * @param ticket
+     * @param destino
+     * @throws java.nio.BufferOverflowException Si el ticket no entra en el espacio que queda.
+     */
+    public void escribir(Ticket ticket, ByteBuffer destino) {
+        try {
+            escribir(ticket, new SalidaBytes(destino));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // SalidaBytes no tira IOException
+        }
+    }
+
+    /**
+     * Descripcion y detalle separados por un espacio, cortados o completados a
+     * {@value #ANCHO_DESCRIPCION} caracteres.
+     */
+    private static void descripcion(Appendable destino, String descripcion, String detalle) throws IOException {
+        int largo = Math.min(descripcion.length(), ANCHO_DESCRIPCION);
+        destino.append(descripcion, 0, largo);
+        if (!detalle.isEmpty() && largo < ANCHO_DESCRIPCION) {
+            destino.append(' ');
+            largo++;
+            int resto = Math.min(detalle.length(), ANCHO_DESCRIPCION - largo);
+            destino.append(detalle, 0, resto);
+            largo += resto;
+        }
+        espacios(destino, ANCHO_DESCRIPCION - largo);
+    }
+
+    /**
+     * Un entero alineado a la derecha en el ancho dado, como %Nd.
+     */
+    private void entero(Appendable destino, long valor, int ancho, char digitoCero) throws IOException {
+        boolean negativo = valor < 0;
+        int cantidad = cargarDigitos(valor, digitoCero);
+        espacios(destino, ancho - cantidad - (negativo ? 1 : 0));
+        if (negativo) {
+            destino.append('-');
+        }
+        volcarDigitos(destino, cantidad);
+    }
+
+    /**
+     * Un importe en centavos con dos decimales, alineado a la derecha, como %Ns de
+     * {@link Dinero#textoLocal(long)}.
+     */
+    private void importe(Appendable destino, long centavos, int ancho) throws IOException {
+        boolean negativo = centavos < 0;
+        long absoluto = Math.abs(centavos);
+        int cantidad = cargarDigitos(absoluto / 100, '0');
+        espacios(destino, ancho - cantidad - 3 - (negativo ? 1 : 0));
+        if (negativo) {
+            destino.append('-');
+        }
+        volcarDigitos(destino, cantidad);
+        long resto = absoluto % 100;
+        destino.append(separadorDecimal);
+        destino.append((char) ('0' + resto / 10));
+        destino.append((char) ('0' + resto % 10));
+    }
+
+    /**
+     * Guarda los digitos del valor absoluto, del menos significativo al mas significativo.
+     * @return Cantidad de digitos.
+     */
+    private int cargarDigitos(long valor, char digitoCero) {
+        int cantidad = 0;
+        do {
+            int digito = (int) Math.abs(valor % 10); // Math.abs por Long.MIN_VALUE
+            digitos[cantidad++] = (char) (digitoCero + digito);
+            valor /= 10;
+        } while (valor != 0);
+        return cantidad;
+    }
+
+    private void volcarDigitos(Appendable destino, int cantidad) throws IOException {
+        for (int i = cantidad - 1; i >= 0; i--) {
+            destino.append(digitos[i]);
+        }
+    }
+
+    private static void espacios(Appendable destino, int cantidad) throws IOException {
+        while (cantidad > 0) {
+            int tanda = Math.min(cantidad, ESPACIOS.length());
+            destino.append(ESPACIOS, 0, tanda);
+            cantidad -= tanda;
+        }
+    }
+
+    /**
+     * Texto alineado en una columna, para armar las lineas fijas.
+     */
+    private static String columna(String texto, int ancho, boolean derecha) {
+        StringBuilder sb = new StringBuilder(ancho);
+        if (!derecha) {
+            sb.append(texto);
+        }
+        for (int i = texto.length(); i < ancho; i++) {
+            sb.append(' ');
+        }
+        if (derecha) {
+            sb.append(texto);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pasa los caracteres a un ByteBuffer en ISO-8859-1.
+     */
+    private static class SalidaBytes implements Appendable {
+        private final ByteBuffer destino;
+
+        SalidaBytes(ByteBuffer destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = csq.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(csq.charAt(i + 1))) {
+                    i++; // Un solo '?' por caracter, aunque ocupe dos char
+                }
+                append(c);
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            destino.put(c <= 0xFF ? (byte) c : (byte) '?');
+            return this;
+        }
+    }
+}
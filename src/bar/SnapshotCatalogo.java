@@ -0,0 +1,167 @@
+package bar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copia binaria del catalogo base (productos.csv) para arrancar sin parsear el CSV.
+ * <p>
+ * Formato:
+ * <pre>
+ * cabecera:   "BARC" version:int csvModificado:long csvTamano:long
+ * strings:    cantidad:int { largo:int bytes UTF-8 }
+ * articulos:  cantidad:int { codigo:int descripcion:int imagen:int
+ *                            precioDiurno:long precioNocturno:long precioHappyHour:long
+ *                            especificaciones:int { nombre:int tipo:byte precio:long } }
+ * </pre>
+ * Los precios van en centavos. Los textos se guardan una sola vez en la tabla de strings y se referencian por indice. La
+ * cabecera guarda la fecha y el tamaño del CSV del que se saco la copia: si el CSV cambio
+ * despues, la copia se descarta.
+ */
+public class SnapshotCatalogo {
+    private static final int MAGICO = 0x42415243; // "BARC"
+    private static final int VERSION = 2; // 2: precios en centavos
+
+    private SnapshotCatalogo() {
+    }
+
+    /**
+     * Lee la copia binaria si corresponde al CSV actual.
+     * @param archivo Ruta de la copia binaria.
+     * @param csv Ruta del CSV base.
+     * @return Los articulos en el orden en que se guardaron, o null si no hay copia valida.
+     */
+    public static Map<String, Articulo> leer(String archivo, String csv) {
+        Path ruta = Paths.get(archivo);
+        if (!Files.exists(ruta)) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(ruta));
+            if (in.getInt() != MAGICO || in.getInt() != VERSION) {
+                return null;
+            }
+            Path rutaCsv = Paths.get(csv);
+            long csvModificado = in.getLong();
+            long csvTamano = in.getLong();
+            if (!Files.exists(rutaCsv)
+                    || Files.getLastModifiedTime(rutaCsv).toMillis() != csvModificado
+                    || Files.size(rutaCsv) != csvTamano) {
+                return null;
+            }
+
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int largo = in.getInt();
+                strings[i] = new String(in.array(), in.position(), largo, StandardCharsets.UTF_8);
+                in.position(in.position() + largo);
+            }
+
+            TipoEspecificacion[] tipos = TipoEspecificacion.values();
+            int cantidad = in.getInt();
+            Map<String, Articulo> articulos = new LinkedHashMap<>(cantidad * 4 / 3 + 1);
+            for (int i = 0; i < cantidad; i++) {
+                String codigo = strings[in.getInt()];
+                String descripcion = strings[in.getInt()];
+                String imagenPath = strings[in.getInt()];
+                long precioDiurno = in.getLong();
+                long precioNocturno = in.getLong();
+                long precioHappyHour = in.getLong();
+                int cantidadSpecs = in.getInt();
+                List<Especificacion> especificaciones = new ArrayList<>(cantidadSpecs);
+                for (int j = 0; j < cantidadSpecs; j++) {
+                    String nombre = strings[in.getInt()];
+                    TipoEspecificacion tipo = tipos[in.get()];
+                    especificaciones.add(Especificacion.obtener(nombre, tipo, in.getLong()));
+                }
+                articulos.put(codigo, new Articulo(codigo, descripcion, precioDiurno, precioNocturno, precioHappyHour, imagenPath, especificaciones));
+            }
+            return articulos;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.err.println("Copia binaria del catalogo descartada: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Escribe la copia binaria de los articulos, que deben ser exactamente los del CSV base ya
+     * guardado. Se escribe un temporal y despues se reemplaza la copia anterior.
+     * @param archivo Ruta de la copia binaria.
+     * @param csv Ruta del CSV base del que salen los articulos.
+     * @param articulos Articulos del CSV base.
+     * @return true si la copia quedo escrita.
+     */
+    public static boolean escribir(String archivo, String csv, Collection<Articulo> articulos) {
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Articulo art : articulos) {
+            indice(art.getCodigo(), indices, strings);
+            indice(art.getDescripcion(), indices, strings);
+            indice(art.getImagenPath(), indices, strings);
+            for (Especificacion spec : art.getEspecificaciones()) {
+                indice(spec.getNombre(), indices, strings);
+            }
+        }
+
+        Path temporal = Paths.get(archivo + ".tmp");
+        try {
+            Path rutaCsv = Paths.get(csv);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporal.toFile())))) {
+                out.writeInt(MAGICO);
+                out.writeInt(VERSION);
+                out.writeLong(Files.getLastModifiedTime(rutaCsv).toMillis());
+                out.writeLong(Files.size(rutaCsv));
+
+                out.writeInt(strings.size());
+                for (String s : strings) {
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(articulos.size());
+                for (Articulo art : articulos) {
+                    out.writeInt(indices.get(art.getCodigo()));
+                    out.writeInt(indices.get(art.getDescripcion()));
+                    out.writeInt(indices.get(art.getImagenPath()));
+                    out.writeLong(art.getPrecioDiurno());
+                    out.writeLong(art.getPrecioNocturno());
+                    out.writeLong(art.getPrecioHappyHour());
+                    out.writeInt(art.getEspecificaciones().size());
+                    for (Especificacion spec : art.getEspecificaciones()) {
+                        out.writeInt(indices.get(spec.getNombre()));
+                        out.writeByte(spec.getTipo().ordinal());
+                        out.writeLong(spec.getPrecioPorUnidad());
+                    }
+                }
+            }
+            Files.move(temporal, Paths.get(archivo), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar la copia binaria del catalogo: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void indice(String s, Map<String, Integer> indices, List<String> strings) {
+        if (!indices.containsKey(s)) {
+            indices.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copia binaria del estado de todas las mesas, para que al arrancar solo haya que reproducir las
+ * operaciones de {@link RegistroMesas} posteriores a la copia.
+ * <p>
+ * Formato:
+ * <pre>
+ * cabecera:  "BARM" version:int
+ * mesas:     cantidad:int { numero:int ultimoSeq:long abierta:boolean [ horaApertura:long
+ *                           consumos:int { consumo } ] }
+ * </pre>
+ * Cada consumo va en el mismo formato que en el registro, ver
+ * {@link RegistroMesas#escribirConsumo}: con la descripcion y las opciones resueltas, asi al
+ * arrancar se arma igual que estaba aunque el catalogo haya cambiado. Las horas van en
+ * nanosegundos desde la medianoche y los precios en centavos. ultimoSeq es la secuencia de la
+ * ultima operacion registrada de la mesa que ya esta incluida en la copia.
+ */
+public class SnapshotMesas {
+    private static final int MAGICO = 0x4241524D; // "BARM"
+    private static final int VERSION = 1;
+
+    private SnapshotMesas() {
+    }
+
+    /**
+     * Estado de una mesa en un momento dado. Los consumos no cambian despues de creados, asi que
+     * basta con copiar la lista.
+     */
+    public static class Estado {
+        final int numero;
+        final long ultimoSeq;
+        final LocalTime horaApertura; // null si la mesa esta libre
+        final List<Consumo> consumos;
+
+        public Estado(int numero, long ultimoSeq, LocalTime horaApertura, List<Consumo> consumos) {
+            this.numero = numero;
+            this.ultimoSeq = ultimoSeq;
+            this.horaApertura = horaApertura;
+            this.consumos = consumos;
+        }
+    }
+
+    /**
+     * Lee la copia de las mesas.
+     * @param archivo Ruta de la copia.
+     * @return El estado de cada mesa guardada, o null si no hay copia valida.
+     */
+    public static List<Estado> leer(String archivo) {
+        Path ruta = Paths.get(archivo);
+        if (!Files.exists(ruta)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ruta)))) {
+            if (in.readInt() != MAGICO || in.readInt() != VERSION) {
+                return null;
+            }
+            int cantidad = in.readInt();
+            List<Estado> estados = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                int numero = in.readInt();
+                long ultimoSeq = in.readLong();
+                if (!in.readBoolean()) {
+                    estados.add(new Estado(numero, ultimoSeq, null, Collections.emptyList()));
+                    continue;
+                }
+                LocalTime horaApertura = LocalTime.ofNanoOfDay(in.readLong());
+                int cantidadConsumos = in.readInt();
+                List<Consumo> consumos = new ArrayList<>(cantidadConsumos);
+                for (int j = 0; j < cantidadConsumos; j++) {
+                    consumos.add(RegistroMesas.leerConsumo(in));
+                }
+                estados.add(new Estado(numero, ultimoSeq, horaApertura, consumos));
+            }
+            return estados;
+        } catch (EOFException e) {
+            System.err.println("Copia de las mesas incompleta, se descarta");
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Copia de las mesas descartada: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Escribe la copia de las mesas en un temporal, la baja a disco y despues reemplaza la copia
+     * anterior, asi siempre queda una copia completa.
+     * @param archivo Ruta de la copia.
+     * @param estados Estado de cada mesa.
+     * @return true si la copia quedo escrita.
+     */
+    public static boolean escribir(String archivo, List<Estado> estados) {
+        Path temporal = Paths.get(archivo + ".tmp");
+        try {
+            FileOutputStream fos = new FileOutputStream(temporal.toFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(MAGICO);
+                out.writeInt(VERSION);
+                out.writeInt(estados.size());
+                for (Estado estado : estados) {
+                    out.writeInt(estado.numero);
+                    out.writeLong(estado.ultimoSeq);
+                    out.writeBoolean(estado.horaApertura != null);
+                    if (estado.horaApertura == null) {
+                        continue;
+                    }
+                    out.writeLong(estado.horaApertura.toNanoOfDay());
+                    out.writeInt(estado.consumos.size());
+                    for (Consumo consumo : estado.consumos) {
+                        RegistroMesas.escribirConsumo(out, consumo);
+                    }
+                }
+                out.flush();
+                fos.getFD().sync(); // Despues de esto se borran los segmentos del registro
+            }
+            Files.move(temporal, Paths.get(archivo), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error al guardar la copia de las mesas: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package bar;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Define que franja de precios rige en cada minuto de la semana.
+ * <p>
+ * Las franjas se cargan una sola vez en una tabla con un casillero por minuto de la semana
+ * (7 * 24 * 60), asi averiguar la franja de un momento es leer una posicion del arreglo. Cada
+ * franja que se agrega pisa a las anteriores en los minutos que cubre; los minutos que no cubre
+ * ninguna son {@link FranjaHoraria#DIURNO}.
+ * <p>
+ * El archivo de tarifas tiene una franja por fila, con el formato {@code dia,desde,hasta,franja},
+ * por ejemplo {@code VIERNES,18:00,20:00,HAPPY_HOUR}. El dia va de LUNES a DOMINGO, o TODOS. Las
+ * lineas vacias y las que empiezan con # se ignoran.
+ */
+public class TarifaHoraria {
+    static final int MINUTOS_DIA = 24 * 60;
+    static final int MINUTOS_SEMANA = 7 * MINUTOS_DIA;
+
+    private static final String[] DIAS = {"LUNES", "MARTES", "MIERCOLES", "JUEVES", "VIERNES", "SABADO", "DOMINGO"};
+
+    /** Se reemplaza entera al agregar una franja, asi las lecturas no necesitan lock. */
+    private volatile FranjaHoraria[] franjaPorMinuto;
+
+    /**
+     * Crea una tarifa sin franjas: toda la semana es diurna.
+     */
+    public TarifaHoraria() {
+        franjaPorMinuto = new FranjaHoraria[MINUTOS_SEMANA];
+        Arrays.fill(franjaPorMinuto, FranjaHoraria.DIURNO);
+    }
+
+    /**
+     * Devuelve la tarifa de siempre: nocturna de 20 a 6 todos los dias y diurna el resto.
+     * @return
+     */
+    public static TarifaHoraria porDefecto() {
+        TarifaHoraria tarifa = new TarifaHoraria();
+        tarifa.agregarFranja(null, 20 * 60, 6 * 60, FranjaHoraria.NOCTURNO);
+        return tarifa;
+    }
+
+    /**
+     * Carga las franjas de un archivo. Si el archivo no existe se usa {@link #porDefecto()}; las
+     * filas con errores se informan y se saltean.
+     * @param archivo Ruta del archivo de tarifas.
+     * @return
+     */
+    public static TarifaHoraria cargar(String archivo) {
+        if (!Files.exists(Paths.get(archivo))) {
+            return porDefecto();
+        }
+        TarifaHoraria tarifa = new TarifaHoraria();
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    String[] data = line.split(",");
+                    if (data.length != 4) {
+                        throw new IllegalArgumentException("se esperaban 4 campos");
+                    }
+                    String dia = data[0].trim().toUpperCase(Locale.ROOT);
+                    tarifa.agregarFranja(dia.equals("TODOS") ? null : parsearDia(dia),
+                            parsearMinuto(data[1]), parsearMinuto(data[2]),
+                            FranjaHoraria.valueOf(data[3].trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Franja horaria invalida (" + e.getMessage() + "): " + line);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error al cargar las tarifas: " + e.getMessage());
+            return porDefecto();
+        }
+        return tarifa;
+    }
+
+    /**
+     * Agrega una franja. Si hasta es menor o igual que desde, la franja sigue hasta ese minuto
+     * del dia siguiente.
+     * @param dia Dia en que empieza la franja, o null para todos los dias.
+     * @param desde Minuto del dia en que empieza (0 a 1439).
+     * @param hasta Minuto del dia en que termina, sin incluirlo (0 a 1440).
+     * @param franja Franja que rige en ese lapso.
+     */
+    public synchronized void agregarFranja(DayOfWeek dia, int desde, int hasta, FranjaHoraria franja) {
+        if (desde < 0 || desde >= MINUTOS_DIA || hasta < 0 || hasta > MINUTOS_DIA) {
+            throw new IllegalArgumentException("Horario fuera de rango: " + desde + " a " + hasta);
+        }
+        int largo = hasta > desde ? hasta - desde : MINUTOS_DIA - desde + hasta;
+        FranjaHoraria[] tabla = franjaPorMinuto.clone();
+        for (int d = 0; d < 7; d++) {
+            if (dia != null && dia.getValue() - 1 != d) {
+                continue;
+            }
+            int inicio = d * MINUTOS_DIA + desde;
+            for (int i = 0; i < largo; i++) {
+                tabla[(inicio + i) % MINUTOS_SEMANA] = franja; // El domingo sigue con el lunes
+            }
+        }
+        franjaPorMinuto = tabla;
+    }
+
+    /**
+     * Devuelve la franja que rige en un momento de la semana.
+     * @param dia
+     * @param hora
+     * @return
+     */
+    public FranjaHoraria getFranja(DayOfWeek dia, LocalTime hora) {
+        return franjaPorMinuto[(dia.getValue() - 1) * MINUTOS_DIA + hora.getHour() * 60 + hora.getMinute()];
+    }
+
+    private static DayOfWeek parsearDia(String dia) {
+        for (int i = 0; i < DIAS.length; i++) {
+            if (DIAS[i].equals(dia)) {
+                return DayOfWeek.of(i + 1);
+            }
+        }
+        throw new IllegalArgumentException("dia desconocido " + dia);
+    }
+
+    /**
+     * Convierte "HH:mm" en minutos desde la medianoche. Acepta "24:00" para el final del dia.
+     */
+    private static int parsearMinuto(String texto) {
+        String[] partes = texto.trim().split(":");
+        if (partes.length != 2) {
+            throw new IllegalArgumentException("hora invalida " + texto.trim());
+        }
+        int horas = Integer.parseInt(partes[0].trim()); // NumberFormatException es IllegalArgumentException
+        int minutos = Integer.parseInt(partes[1].trim());
+        if (horas < 0 || minutos < 0 || minutos > 59 || horas * 60 + minutos > MINUTOS_DIA) {
+            throw new IllegalArgumentException("hora invalida " + texto.trim());
+        }
+        return horas * 60 + minutos;
+    }
+}
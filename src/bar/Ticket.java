@@ -0,0 +1,139 @@
+package bar;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ticket de una mesa cerrada: la mesa, cuando se abrio y se cerro, cada consumo con sus opciones
+ * y precios, y el total. No cambia despues de creado.
+ */
+public class Ticket {
+    final long numero; // 0 hasta que se guarda en el archivo de tickets
+    final int mesa;
+    final LocalDate fecha;
+    final LocalTime horaApertura;
+    final LocalTime horaCierre;
+    final List<Linea> lineas;
+    final long total; // En centavos
+
+    public Ticket(long numero, int mesa, LocalDate fecha, LocalTime horaApertura, LocalTime horaCierre, List<Linea> lineas, long total) {
+        this.numero = numero;
+        this.mesa = mesa;
+        this.fecha = fecha;
+        this.horaApertura = horaApertura;
+        this.horaCierre = horaCierre;
+        this.lineas = Collections.unmodifiableList(lineas);
+        this.total = total;
+    }
+
+    /**
+     * Devuelve el mismo ticket con su numero en el archivo.
+     * @param numero
+     * @return
+     */
+    Ticket conNumero(long numero) {
+        return new Ticket(numero, mesa, fecha, horaApertura, horaCierre, lineas, total);
+    }
+
+    /**
+     * Devuelve el texto del ticket, tal como se muestra al cerrar la mesa. Para escribirlo en un
+     * archivo o una impresora sin pasar por un String, ver {@link RenderizadorTicket}.
+     * @return
+     */
+    public String getTexto() {
+        return new RenderizadorTicket().texto(this);
+    }
+
+    /**
+     * Devuelve el numero del ticket en el archivo de tickets.
+     * @return
+     */
+    public long getNumero() { return numero; }
+
+    /**
+     * Devuelve el numero de la mesa.
+     * @return
+     */
+    public int getMesa() { return mesa; }
+
+    /**
+     * Devuelve el dia en que se cerro la mesa.
+     * @return
+     */
+    public LocalDate getFecha() { return fecha; }
+
+    /**
+     * Devuelve la hora a la que se abrio la mesa.
+     * @return
+     */
+    public LocalTime getHoraApertura() { return horaApertura; }
+
+    /**
+     * Devuelve la hora a la que se cerro la mesa.
+     * @return
+     */
+    public LocalTime getHoraCierre() { return horaCierre; }
+
+    /**
+     * Devuelve los consumos del ticket, en el orden en que se hicieron.
+     * @return
+     */
+    public List<Linea> getLineas() { return lineas; }
+
+    /**
+     * Devuelve el total del ticket, en centavos.
+     * @return
+     */
+    public long getTotal() { return total; }
+
+    /**
+     * Un consumo del ticket, con la descripcion y los precios que tenia al cerrar la mesa.
+     */
+    public static class Linea {
+        final String codigo;
+        final String descripcion;
+        final String detalle; // Opciones elegidas, "" si no hay
+        final int cantidad;
+        final long precioUnitarioBase;
+        final long precioUnitarioFinal;
+        final long subtotal;
+
+        public Linea(String codigo, String descripcion, String detalle, int cantidad, long precioUnitarioBase, long precioUnitarioFinal, long subtotal) {
+            this.codigo = codigo;
+            this.descripcion = descripcion;
+            this.detalle = detalle;
+            this.cantidad = cantidad;
+            this.precioUnitarioBase = precioUnitarioBase;
+            this.precioUnitarioFinal = precioUnitarioFinal;
+            this.subtotal = subtotal;
+        }
+
+        /**
+         * Arma la linea de un consumo.
+         * @param consumo
+         * @return
+         */
+        static Linea de(Consumo consumo) {
+            String detalle = consumo.getDetalle();
+            return new Linea(consumo.getArticulo().getCodigo(), consumo.getArticulo().getDescripcion(),
+                    detalle != null ? detalle : "", consumo.getCantidad(), consumo.precioUnitarioBase,
+                    consumo.getPrecioUnitarioFinal(), consumo.getSubtotal());
+        }
+
+        public String getCodigo() { return codigo; }
+
+        public String getDescripcion() { return descripcion; }
+
+        public String getDetalle() { return detalle; }
+
+        public int getCantidad() { return cantidad; }
+
+        public long getPrecioUnitarioBase() { return precioUnitarioBase; }
+
+        public long getPrecioUnitarioFinal() { return precioUnitarioFinal; }
+
+        public long getSubtotal() { return subtotal; }
+    }
+}
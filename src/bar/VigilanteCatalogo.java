@@ -0,0 +1,230 @@
+package bar;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vigila productos.csv con un WatchService y avisa que filas cambiaron.
+ * <p>
+ * De cada fila se guarda un hash por codigo. Cuando el archivo cambia se vuelve a leer, pero solo
+ * se entregan las filas cuyo hash es distinto y los codigos que desaparecieron; las filas iguales
+ * no se parsean.
+ * <p>
+ * Un editor puede tardar en terminar de escribir el archivo, y una fila que falta en una lectura
+ * a medias se tomaria como una baja. Por eso solo se relee cuando el tamaño y la fecha del
+ * archivo dejaron de cambiar, y una recarga que quitaria la mayoria de los articulos se ignora.
+ */
+public class VigilanteCatalogo {
+    /** Tiempo que el archivo tiene que quedar sin cambios para darlo por escrito. */
+    private static final long ESPERA_MS = 150;
+    /** Si el archivo sigue cambiando pasado este tiempo, la recarga queda para el proximo aviso. */
+    private static final long ESPERA_MAXIMA_MS = 10_000;
+
+    /**
+     * Recibe las filas que cambiaron.
+     */
+    public interface Oyente {
+        /**
+         * @param filas Fila completa de cada codigo nuevo o modificado.
+         * @param eliminados Codigos que ya no estan en el archivo.
+         */
+        void filasCambiadas(Map<String, String> filas, Set<String> eliminados);
+    }
+
+    private final Path archivo;
+    private final Oyente oyente;
+    private Map<String, Long> hashes = new HashMap<>();
+
+    /**
+     * @param archivo Ruta del CSV a vigilar.
+     * @param oyente Recibe los cambios, desde el hilo del vigilante.
+     */
+    public VigilanteCatalogo(String archivo, Oyente oyente) {
+        this.archivo = Paths.get(archivo).toAbsolutePath();
+        this.oyente = oyente;
+    }
+
+    /**
+     * Empieza a vigilar el archivo en un hilo aparte.
+     */
+    public void iniciar() {
+        Thread hilo = new Thread(this::vigilar, "vigilante-catalogo");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    private void vigilar() {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            archivo.getParent().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            synchronized (this) {
+                hashes = leerHashes(null);
+            }
+
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean cambio = false;
+                for (WatchEvent<?> evento : key.pollEvents()) {
+                    if (archivo.getFileName().equals(evento.context())) {
+                        cambio = true;
+                    }
+                }
+                key.reset();
+                if (cambio) {
+                    boolean estable = esperarEstable();
+                    // Descartar los avisos de la misma escritura
+                    WatchKey resto = watcher.poll();
+                    if (resto != null) {
+                        resto.pollEvents();
+                        resto.reset();
+                    }
+                    if (estable) {
+                        recargar();
+                    } else {
+                        System.err.println("El catalogo sigue cambiando, no se recarga todavia");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("No se puede vigilar el catalogo: " + e.getMessage());
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Espera a que el tamaño y la fecha de modificacion del archivo no cambien durante
+     * {@value #ESPERA_MS} ms.
+     * @return false si pasaron {@value #ESPERA_MAXIMA_MS} ms y el archivo seguia cambiando.
+     */
+    private boolean esperarEstable() throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+        String anterior = estado();
+        while (true) {
+            Thread.sleep(ESPERA_MS);
+            String actual = estado();
+            if (actual != null && actual.equals(anterior)) {
+                return true;
+            }
+            if (System.currentTimeMillis() > limite) {
+                return false;
+            }
+            anterior = actual;
+        }
+    }
+
+    /**
+     * Devuelve el tamaño y la fecha del archivo, o null si no se pueden leer (por ejemplo, si el
+     * editor lo esta reemplazando).
+     */
+    private String estado() {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+            return atributos.size() + "/" + atributos.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private synchronized void recargar() {
+        Map<String, String> filas = new LinkedHashMap<>();
+        Map<String, Long> nuevos;
+        try {
+            nuevos = leerHashes(filas);
+        } catch (IOException e) {
+            System.err.println("Error al releer el catalogo: " + e.getMessage());
+            return;
+        }
+        Set<String> eliminados = new HashSet<>(hashes.keySet());
+        eliminados.removeAll(nuevos.keySet());
+        if (eliminados.size() > hashes.size() / 2 && eliminados.size() > 1) {
+            // Mas probable un archivo a medio escribir que un catalogo borrado casi entero. Los
+            // hashes quedan como estaban, asi el proximo cambio se compara contra el catalogo actual
+            System.err.println("Recarga del catalogo ignorada: faltan " + eliminados.size() + " de " + hashes.size() + " articulos");
+            return;
+        }
+        hashes = nuevos;
+        if (!filas.isEmpty() || !eliminados.isEmpty()) {
+            oyente.filasCambiadas(filas, eliminados);
+        }
+    }
+
+    /**
+     * Lee el archivo y calcula el hash de cada fila de articulo.
+     * @param cambiadas Si no es null, recibe las filas cuyo hash no coincide con el anterior.
+     */
+    private Map<String, Long> leerHashes(Map<String, String> cambiadas) throws IOException {
+        Map<String, Long> resultado = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(archivo.toFile()))) {
+            String line;
+            br.readLine(); // Saltar encabezado
+            while ((line = br.readLine()) != null) {
+                String codigo = codigo(line);
+                if (codigo == null) {
+                    continue;
+                }
+                long hash = hashFila(line);
+                resultado.put(codigo, hash);
+                Long anterior = hashes.get(codigo);
+                if (cambiadas != null && (anterior == null || anterior != hash)) {
+                    cambiadas.put(codigo, line);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Avisa que el propio programa va a reemplazar el archivo con estas filas, para que ese
+     * cambio no se tome como una edicion externa.
+     * @param filas Filas escritas, por codigo.
+     */
+    public synchronized void escrituraPropia(Map<String, String> filas) {
+        Map<String, Long> nuevos = new HashMap<>();
+        for (Map.Entry<String, String> entry : filas.entrySet()) {
+            nuevos.put(entry.getKey(), hashFila(entry.getValue()));
+        }
+        hashes = nuevos;
+    }
+
+    /**
+     * Devuelve el codigo de una fila con todos los campos de un articulo, o null si le faltan.
+     */
+    private static String codigo(String line) {
+        int comas = 0;
+        for (int i = 0; i < line.length() && comas < 6; i++) {
+            if (line.charAt(i) == ',') {
+                comas++;
+            }
+        }
+        return comas < 6 ? null : line.substring(0, line.indexOf(',')).trim();
+    }
+
+    /**
+     * Hash FNV-1a de 64 bits de la fila.
+     */
+    static long hashFila(String line) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            hash ^= line.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}